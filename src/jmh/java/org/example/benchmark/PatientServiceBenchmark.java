@@ -0,0 +1,85 @@
+package org.example.benchmark;
+
+import org.example.PatientsApp;
+import org.example.entity.Patient;
+import org.example.service.PatientCache;
+import org.example.service.PatientIdFilter;
+import org.example.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PatientService reads against the embedded H2 database of a real (non-web) application context,
+ * plus the printName lookup over the in-service list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private PatientCache patientCache;
+    private long unknownId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PatientsApp.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark", "--logging.level.root=WARN");
+        patientService = context.getBean(PatientService.class);
+        patientCache = context.getBean(PatientCache.class);
+
+        // The filter only answers for ids up to the highest known one: insert a row with a
+        // generated id, then probe a gap below it that the filter rejects (not a false positive)
+        long maxId = patientService.post_Patient(new Patient(null, "Benchmark", "30")).getId();
+        PatientIdFilter patientIdFilter = context.getBean(PatientIdFilter.class);
+        unknownId = 500;
+        while (patientIdFilter.mightContain(unknownId)) {
+            if (++unknownId >= maxId) {
+                throw new IllegalStateException("No id below " + maxId + " is rejected by the id filter");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Served from the read-through cache
+    @Benchmark
+    public Patient getPatientCached() {
+        return patientService.getPatient(1L);
+    }
+
+    // Cache entry dropped first, so every call goes to H2
+    @Benchmark
+    public Patient getPatientFromDatabase() {
+        patientCache.evict(1L);
+        return patientService.getPatient(1L);
+    }
+
+    // Missing id below the highest one: rejected by the id filter without touching H2
+    @Benchmark
+    public Patient getPatientUnknownId() {
+        return patientService.getPatient(unknownId);
+    }
+
+    @Benchmark
+    public Patient printNameHit() {
+        return patientService.printName("ali");
+    }
+
+    @Benchmark
+    public Patient printNameMiss() {
+        return patientService.printName("Nobody");
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.example.dto.PatientDTO;
+import org.example.entity.Patient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trips of the entity (renamed "full-name" property), of the DTO and of a
+ * 100-row page of DTOs, in each wire format the controller negotiates (JSON, Smile, CBOR).
+ * Readers and writers are resolved once, as Spring's message converters do.
+ * Payload sizes per format are printed once per fork, before the first iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private Patient patient;
+    private PatientDTO dto;
+    private List<PatientDTO> page;
+    private ObjectWriter patientWriter;
+    private ObjectWriter dtoWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader patientReader;
+    private ObjectReader dtoReader;
+    private ObjectReader pageReader;
+    private byte[] patientBytes;
+    private byte[] dtoBytes;
+    private byte[] pageBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = switch (format) {
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            default -> new ObjectMapper();
+        };
+        patient = new Patient(1L, "Ali", "22");
+        dto = new PatientDTO(2L, "Assa", "30");
+        page = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            page.add(new PatientDTO(id, "Patient " + id, String.valueOf(20 + id % 60)));
+        }
+        JavaType pageType = mapper.getTypeFactory().constructCollectionType(List.class, PatientDTO.class);
+
+        patientWriter = mapper.writerFor(Patient.class);
+        dtoWriter = mapper.writerFor(PatientDTO.class);
+        pageWriter = mapper.writerFor(pageType);
+        patientReader = mapper.readerFor(Patient.class);
+        dtoReader = mapper.readerFor(PatientDTO.class);
+        pageReader = mapper.readerFor(pageType);
+        patientBytes = patientWriter.writeValueAsBytes(patient);
+        dtoBytes = dtoWriter.writeValueAsBytes(dto);
+        pageBytes = pageWriter.writeValueAsBytes(page);
+
+        System.out.printf("%n[%s] payload bytes: patient=%d dto=%d page(%d)=%d%n",
+                format, patientBytes.length, dtoBytes.length, PAGE_SIZE, pageBytes.length);
+    }
+
+    @Benchmark
+    public byte[] writePatient() throws Exception {
+        return patientWriter.writeValueAsBytes(patient);
+    }
+
+    @Benchmark
+    public byte[] writePatientDto() throws Exception {
+        return dtoWriter.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws Exception {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Patient readPatient() throws Exception {
+        return patientReader.readValue(patientBytes);
+    }
+
+    @Benchmark
+    public PatientDTO readPatientDto() throws Exception {
+        return dtoReader.readValue(dtoBytes);
+    }
+
+    @Benchmark
+    public List<PatientDTO> readPage() throws Exception {
+        return pageReader.readValue(pageBytes);
+    }
+}
@@ -2,13 +2,16 @@ package org.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
 import static org.springframework.boot.autoconfigure.SpringBootApplication.*;
 
-@SpringBootApplication
+// R2DBC is wired by ReactiveConfig only: an auto-configured ConnectionFactory would take over
+// schema.sql/data.sql (undeferred) and add a second transaction manager next to JPA's
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class PatientsApp {
     public static void main(String[] args) {
         SpringApplication.run((PatientsApp.class));
 
     }
-    }
\ No newline at end of file
+    }
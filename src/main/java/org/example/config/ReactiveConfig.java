@@ -0,0 +1,42 @@
+package org.example.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.example.repo.PatientReactiveRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * R2DBC side of the reactive API (patients.reactive.enabled=true), on the same database as
+ * the JPA side. The pool is owned by {@link PatientReactiveRepo} and deliberately not a
+ * ConnectionFactory bean, which would switch on Spring Boot's R2DBC SQL init and reactive
+ * transaction manager.
+ */
+@Configuration
+@ConditionalOnProperty(name = "patients.reactive.enabled", havingValue = "true")
+public class ReactiveConfig {
+
+    @Bean
+    public PatientReactiveRepo patientReactiveRepo(@Value("${patients.reactive.r2dbc.url}") String url,
+                                                   @Value("${patients.reactive.r2dbc.username:}") String username,
+                                                   @Value("${patients.reactive.r2dbc.password:}") String password,
+                                                   @Value("${patients.reactive.r2dbc.max-pool-size:10}") int maxPoolSize,
+                                                   @Value("${patients.reactive.r2dbc.max-acquire-time:5s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .maxSize(maxPoolSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return new PatientReactiveRepo(pool);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replica pool, everything else to the primary.
+ * The flag is only set once the transaction has started, so this must sit behind a
+ * LazyConnectionDataSourceProxy (see {@link DataSourceConfig}).
+ * {@link #readFromPrimary} pins the reads of a block to the primary, for data that may not
+ * have reached the replica yet.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    // Read-only transactions started inside run on the primary. One that already holds a
+    // replica connection when this is entered keeps it
+    public static <T> T readFromPrimary(Supplier<T> reads) {
+        boolean outer = PRIMARY_READS.get() != null;
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (!outer) {
+                PRIMARY_READS.remove();
+            }
+        }
+    }
+
+    public static Route currentRoute() {
+        return PRIMARY_READS.get() == null
+                && TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.config;
+
+import org.example.service.PatientService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+
+/**
+ * Periodic background jobs, on Spring Boot's task scheduler.
+ * Registered here rather than with @Scheduled so the intervals are plain Duration
+ * properties ("10m"), like every other patients.* setting.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final PatientService patientService;
+    private final Duration idFilterRebuildInterval;
+
+    public SchedulingConfig(PatientService patientService,
+                            @Value("${patients.id-filter.rebuild-interval:10m}") Duration idFilterRebuildInterval) {
+        this.patientService = patientService;
+        this.idFilterRebuildInterval = idFilterRebuildInterval;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        // The first build runs at startup (PatientService.rebuildIndexes)
+        registrar.addFixedDelayTask(new FixedDelayTask(patientService::rebuildIndexes,
+                idFilterRebuildInterval, idFilterRebuildInterval));
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.config;
+
+import org.ehcache.config.Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.xml.XmlConfiguration;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * JCache manager behind Hibernate's second-level cache (regions in ehcache.xml).
+ * Each application context gets its own manager: JCache hands out one manager per URI
+ * and JVM, so a shared one would leak entities between contexts on different databases.
+ */
+@org.springframework.context.annotation.Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(
+            @Value("${patients.second-level-cache.config:classpath:ehcache.xml}") Resource config) throws IOException {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName(), getClass().getClassLoader());
+        Configuration regions = new XmlConfiguration(config.getURL(), getClass().getClassLoader());
+        return provider.getCacheManager(URI.create("urn:patients:second-level-cache:" + UUID.randomUUID()), regions);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.StringJoiner;
+
+/**
+ * Logs PatientRepo calls slower than patients.db.slow-query-threshold together with their
+ * arguments, i.e. the values bound to the query, and counts them per method.
+ * Latency histograms for every call come from Spring Data's own
+ * spring.data.repository.invocations timer; this only picks out the outliers.
+ * Methods returning a Stream are timed until the stream is opened, not consumed.
+ */
+@Aspect
+@Component
+public class SlowRepositoryCallAspect {
+
+    private static final Logger log = LoggerFactory.getLogger("org.example.repo.SlowQuery");
+    // Long IN lists are cut down in the log line
+    private static final int MAX_LOGGED_ITEMS = 10;
+
+    private final long thresholdNanos;
+    private final MeterRegistry registry;
+
+    public SlowRepositoryCallAspect(@Value("${patients.db.slow-query-threshold:200ms}") Duration threshold,
+                                    MeterRegistry registry) {
+        this.thresholdNanos = threshold.toNanos();
+        this.registry = registry;
+    }
+
+    @Around("this(org.example.repo.PatientRepo) && !execution(* java.lang.Object.*(..))")
+    public Object time(ProceedingJoinPoint call) throws Throwable {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = call.proceed();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= thresholdNanos) {
+                String method = call.getSignature().getName();
+                Counter.builder("patients.db.slow.calls")
+                        .description("PatientRepo calls slower than patients.db.slow-query-threshold")
+                        .tag("method", method)
+                        .register(registry)
+                        .increment();
+                log.warn("Slow repository call PatientRepo.{}({}) took {} ms{}", method, describe(call.getArgs()),
+                        elapsed / 1_000_000, failed ? " and failed" : "");
+            }
+        }
+    }
+
+    static String describe(Object[] args) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Object arg : args) {
+            joiner.add(describe(arg));
+        }
+        return joiner.toString();
+    }
+
+    private static String describe(Object arg) {
+        if (arg instanceof Collection<?> values && values.size() > MAX_LOGGED_ITEMS) {
+            StringJoiner joiner = new StringJoiner(", ", "[", ", ... " + values.size() + " items]");
+            Iterator<?> it = values.iterator();
+            for (int i = 0; i < MAX_LOGGED_ITEMS; i++) {
+                joiner.add(String.valueOf(it.next()));
+            }
+            return joiner.toString();
+        }
+        return String.valueOf(arg);
+    }
+}
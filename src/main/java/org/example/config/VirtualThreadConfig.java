@@ -0,0 +1,58 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Extra wiring for spring.threads.virtual.enabled=true.
+ * Spring Boot already runs Tomcat requests and the application task executor on virtual
+ * threads; here each Hikari pool is wrapped in a {@link GuardedDataSource} so that thousands
+ * of parked requests queue fairly for its few connections instead of stampeding it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // static: post-processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor guardedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    int permits = environment.getProperty("patients.db.max-concurrent-connections",
+                            Integer.class, pool.getMaximumPoolSize());
+                    Duration timeout = environment.getProperty("patients.db.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+                    return new GuardedDataSource(pool, permits, timeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder guardedDataSourceMetrics(Map<String, DataSource> dataSources) {
+        return registry -> dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof GuardedDataSource guarded) {
+                Gauge.builder("patients.db.guard.waiting", guarded, GuardedDataSource::getWaiting)
+                        .tag("pool", name)
+                        .description("Threads waiting for a database connection permit")
+                        .register(registry);
+                Gauge.builder("patients.db.guard.available", guarded, GuardedDataSource::getAvailable)
+                        .tag("pool", name)
+                        .description("Free database connection permits")
+                        .register(registry);
+            }
+        });
+    }
+}
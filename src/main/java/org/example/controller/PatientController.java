@@ -1,21 +1,38 @@
 package org.example.controller;
 
+import org.example.config.WireFormatConfig;
+import org.example.dto.BatchGetItem;
+import org.example.dto.BulkDeleteResult;
+import org.example.dto.BulkImportResult;
 import org.example.dto.PatientDTO;
+import org.example.dto.PatientPage;
+import org.example.dto.WriteTicket;
 import org.example.entity.Patient;
 import org.example.mapper.PatientMapper;
-import org.example.repo.PatientRepo;
+import org.example.service.ExportFormat;
 import org.example.service.PatientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// Bodies are JSON, Smile or CBOR as negotiated by Accept / Content-Type (WireFormatConfig)
 @RestController
 @RequestMapping("/Patient")
 public class PatientController {
 
     @Autowired
     private PatientService patientService;
-    @Autowired
-    PatientRepo patientRepo;
     @GetMapping("/print-name")
     public Patient printName (){
 
@@ -30,14 +47,44 @@ public class PatientController {
 
     }
 
+    // Strong ETag = the patient's version. A matching If-None-Match is answered 304 from the
+    // version alone (cached patient or one-column query): nothing is loaded or serialized
 @GetMapping ("/get_patient")
-    public  Patient get_Patient_By_ID (@RequestParam Long id){
-        return patientService.getPatient(id);
+    public  ResponseEntity<Patient> get_Patient_By_ID (@RequestParam Long id, WebRequest request){
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && notModified(patientService.getPatientVersion(id), request)) {
+            return null;
+        }
+        Patient patient = patientService.getPatient(id);
+        return withETag(patient == null ? null : patient.getVersion()).body(patient);
+    }
+
+    // Same lookup as /get_patient, read through the DTO projection. The version is read
+    // first: if the row changes in between, the body is newer than its ETag, never older
+    @GetMapping("/get_patient_dto")
+    public ResponseEntity<PatientDTO> get_Patient_Dto_By_ID(@RequestParam Long id, WebRequest request) {
+        Long version = patientService.getPatientVersion(id);
+        if (notModified(version, request)) {
+            return null;
+        }
+        return withETag(version).body(patientService.getPatientdto(id));
     }
 
+    // With write-behind on, answers 202 with a WriteTicket instead of the saved patient.
+    // A body with a version is only applied while the patient is still at that version: 409
+    // otherwise, or a FAILED ticket with write-behind
     @PostMapping ("/post_patient")
-    public Patient post_Patient (@RequestBody Patient patient){
-        return patientService.post_Patient(patient);
+    public ResponseEntity<?> post_Patient (@RequestBody Patient patient){
+        if (patientService.isWriteBehindEnabled()) {
+            return enqueue(PatientMapper.toDTO(patient), patient.getVersion());
+        }
+        try {
+            Patient saved = patientService.post_Patient(patient);
+            return withETag(saved.getVersion()).body(saved);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping ("/delete_patient")
@@ -45,10 +92,195 @@ public class PatientController {
        patientService.delete_Patient(id);
     }
     @PostMapping("/save")
-    public PatientDTO save(@RequestBody PatientDTO dto) {
-        Patient entity = PatientMapper.toEntity(dto);
-        Patient saved = patientRepo.save(entity);
-        return PatientMapper.toDTO(saved);
+    public ResponseEntity<?> save(@RequestBody PatientDTO dto) {
+        if (patientService.isWriteBehindEnabled()) {
+            return enqueue(dto, null);
+        }
+        // Goes through the service so the patient cache is invalidated
+        try {
+            return ResponseEntity.ok(patientService.save(dto));
+        } catch (OptimisticLockingFailureException e) {
+            // Another write landed between reading the version and saving
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Many patients in one round trip: ?ids=1,2,3 or a JSON array body. Answers in request
+    // order, with found=false for unknown ids; more than patients.batch-get.max-ids is 400
+    @GetMapping("/batch-get")
+    public List<BatchGetItem> batchGet(@RequestParam List<Long> ids) {
+        return batchGetOrBadRequest(ids);
+    }
+
+    @PostMapping(value = "/batch-get", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, WireFormatConfig.APPLICATION_SMILE_VALUE})
+    public List<BatchGetItem> batchGetPost(@RequestBody List<Long> ids) {
+        return batchGetOrBadRequest(ids);
+    }
+
+    private List<BatchGetItem> batchGetOrBadRequest(List<Long> ids) {
+        try {
+            return patientService.batchGet(ids);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Create or replace patient {id} in one statement. Retries with the same Idempotency-Key
+    // get the first response; reusing the key for another body is 422.
+    // With If-Match (the ETag of a read) it only replaces that version: 412 if it has changed
+    @PutMapping("/{id}")
+    public ResponseEntity<PatientDTO> upsert(@PathVariable Long id,
+                                             @RequestBody PatientDTO dto,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            if (ifMatch == null) {
+                return ResponseEntity.ok(patientService.upsert(id, dto, idempotencyKey));
+            }
+            Long expected = parseETag(ifMatch);
+            if (expected == null) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match must be a strong ETag from a read: " + ifMatch);
+            }
+            return withETag(expected + 1).body(patientService.updateIfVersion(id, expected, dto, idempotencyKey));
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
+    // Sets 304 on the response when If-None-Match matches the version's ETag
+    private static boolean notModified(Long version, WebRequest request) {
+        return version != null && request.checkNotModified(etag(version));
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(Long version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return version == null ? builder : builder.eTag(etag(version));
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // "3" → 3; weak (W/"3"), lists and * are not accepted for a version check
+    private static Long parseETag(String value) {
+        String tag = value.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Progress of a write-behind save: PENDING, SAVED (with id) or FAILED (with error)
+    @GetMapping("/save-status/{token}")
+    public WriteTicket saveStatus(@PathVariable String token) {
+        WriteTicket ticket = patientService.getWriteStatus(token);
+        if (ticket == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired token: " + token);
+        }
+        return ticket;
+    }
+
+    private ResponseEntity<WriteTicket> enqueue(PatientDTO dto, Long version) {
+        try {
+            return ResponseEntity.accepted().body(patientService.enqueueSave(dto, version));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            // Backlog full or writer not started yet
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    // JSON array, or the same list as Smile / CBOR
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, WireFormatConfig.APPLICATION_SMILE_VALUE})
+    public BulkImportResult bulk(@RequestBody List<PatientDTO> dtos) {
+        return patientService.bulkSave(dtos);
+    }
+
+    // Streaming variant: one PatientDTO per line, never held in memory as a whole
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult bulkNdjson(InputStream body) throws IOException {
+        return patientService.importNdjson(body);
+    }
+
+    // Retention purge: ids deleted in chunks of DELETE ... WHERE id IN (...), rows removed per chunk
+    @PostMapping("/bulk-delete")
+    public BulkDeleteResult bulkDelete(@RequestBody List<Long> ids) {
+        return patientService.bulkDelete(ids);
+    }
+
+    // Same purge for everyone aged min..max (inclusive)
+    @PostMapping("/bulk-delete/by-age")
+    public BulkDeleteResult bulkDeleteByAge(@RequestParam int min, @RequestParam int max) {
+        try {
+            return patientService.bulkDeleteByAge(min, max);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Whole table as ndjson (default) or csv, written while the rows are read
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        if (exportFormat == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+
+        StreamingResponseBody body = out -> patientService.exportPatients(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=patients." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @GetMapping("/list")
+    public PatientPage list(@RequestParam(required = false) String cursor,
+                            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return patientService.listPatients(cursor, size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Age range, inclusive: ?min=60&max=80, paged like /list
+    @GetMapping("/by-age")
+    public PatientPage byAge(@RequestParam int min,
+                             @RequestParam int max,
+                             @RequestParam(required = false) String cursor,
+                             @RequestParam(defaultValue = "50") int size) {
+        try {
+            return patientService.findByAgeRange(min, max, cursor, size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Exact name match, case-insensitive
+    @GetMapping("/by-name")
+    public List<PatientDTO> byName(@RequestParam String name) {
+        return patientService.findByName(name);
+    }
+
+    // Type-ahead: ?q=sm finds "Smith", with fuzzy=true ?q=smyth does too
+    @GetMapping("/search")
+    public List<PatientDTO> search(@RequestParam String q,
+                                  @RequestParam(defaultValue = "10") int limit,
+                                  @RequestParam(defaultValue = "true") boolean fuzzy) {
+        return patientService.search(q, limit, fuzzy);
     }
 
 }
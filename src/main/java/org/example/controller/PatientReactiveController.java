@@ -0,0 +1,51 @@
+package org.example.controller;
+
+import org.example.dto.PatientDTO;
+import org.example.service.PatientReactiveService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking mirror of get_patient, save and delete_patient (patients.reactive.enabled=true).
+ * Request threads are released while R2DBC works; /stream writes one patient per line and
+ * only reads further rows as the client takes them.
+ */
+@RestController
+@RequestMapping("/reactive/Patient")
+@ConditionalOnProperty(name = "patients.reactive.enabled", havingValue = "true")
+public class PatientReactiveController {
+
+    private final PatientReactiveService patientReactiveService;
+
+    public PatientReactiveController(PatientReactiveService patientReactiveService) {
+        this.patientReactiveService = patientReactiveService;
+    }
+
+    // Empty body for an unknown id, like /Patient/get_patient
+    @GetMapping("/get_patient")
+    public Mono<PatientDTO> getPatient(@RequestParam Long id) {
+        return patientReactiveService.getPatient(id);
+    }
+
+    @PostMapping("/save")
+    public Mono<PatientDTO> save(@RequestBody PatientDTO dto) {
+        return patientReactiveService.save(dto)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    @PostMapping("/delete_patient")
+    public Mono<Void> deletePatient(@RequestParam Long id) {
+        return patientReactiveService.delete(id);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PatientDTO> stream() {
+        return patientReactiveService.streamPatients();
+    }
+}
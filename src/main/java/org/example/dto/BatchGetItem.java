@@ -0,0 +1,20 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One entry of /Patient/batch-get, in the position of the requested id
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchGetItem {
+    private Long id;
+    private boolean found;
+    // Absent when not found
+    private PatientDTO patient;
+}
@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkChunkResult {
+    private int chunk;
+    private int succeeded;
+    private int failed;
+    // First error seen in the chunk, null when everything was written
+    private String error;
+}
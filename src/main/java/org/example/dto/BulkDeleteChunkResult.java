@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkDeleteChunkResult {
+    private int chunk;
+    // Ids in the chunk's DELETE ... WHERE id IN (...)
+    private int requested;
+    // Rows the statement removed; lower than requested for ids that did not exist
+    private int deleted;
+}
@@ -0,0 +1,21 @@
+package org.example.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BulkDeleteResult {
+    private int requested;
+    private int deleted;
+    private List<BulkDeleteChunkResult> chunks = new ArrayList<>();
+
+    public void add(BulkDeleteChunkResult chunk) {
+        chunks.add(chunk);
+        requested += chunk.getRequested();
+        deleted += chunk.getDeleted();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BulkImportResult {
+    private int received;
+    private int succeeded;
+    private int failed;
+    private List<BulkChunkResult> chunks = new ArrayList<>();
+
+    public void add(BulkChunkResult chunk) {
+        chunks.add(chunk);
+        received += chunk.getSucceeded() + chunk.getFailed();
+        succeeded += chunk.getSucceeded();
+        failed += chunk.getFailed();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Receipt for a write-behind save, also the body of /Patient/save-status/{token}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WriteTicket {
+
+    public enum Status { PENDING, SAVED, FAILED }
+
+    private String token;
+    private Status status;
+    // Assigned id once SAVED
+    private Long id;
+    // Database error when FAILED
+    private String error;
+}
@@ -0,0 +1,29 @@
+package org.example.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Keeps {@code age} a string in Java and JSON ("age": "30") while the column is an
+ * INTEGER, so range filters and sorting use the age index instead of parsing text.
+ */
+@Converter
+public class AgeConverter implements AttributeConverter<String, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(String age) {
+        if (age == null || age.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(age.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Age must be a whole number: " + age, e);
+        }
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer age) {
+        return age == null ? null : age.toString();
+    }
+}
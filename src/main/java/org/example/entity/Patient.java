@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,18 +15,43 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "patients")
+// (age, id): age-range pages are read in index order, the id breaks ties for the keyset cursor
+@Table(name = "patients", indexes = @Index(name = "idx_patients_age", columnList = "age, id"))
+// Second-level cache (region "org.example.entity.Patient" in ehcache.xml). READ_WRITE keeps
+// it consistent with concurrent writes through Hibernate; bulk HQL invalidates the region.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Patient {
+    // Ids below this are chosen by clients (seed rows, PUT /Patient/{id}); from it up they
+    // come from the sequence only
+    public static final int FIRST_GENERATED_ID = 1000;
+
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts.
+    // Starts at 1000 to stay clear of the seed rows in data.sql.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patients_seq")
+    @SequenceGenerator(name = "patients_seq", sequenceName = "patients_seq", initialValue = FIRST_GENERATED_ID, allocationSize = 50)
     @JsonProperty("id")
     @Column(name = "id")
     private Long id;
     @Column(name = "name")
     @JsonProperty("full-name")
     private String name;
+    // INTEGER column (see AgeConverter); still a string in Java and JSON
     @Column(name = "age")
+    @Convert(converter = AgeConverter.class)
     @JsonProperty("age")
     private String age;
+    // Optimistic lock and HTTP validator: bumped by every write (JPA, MERGE upsert, R2DBC),
+    // the ETag of the read endpoints and the If-Match of conditional writes.
+    // Null only on instances that never came from the database
+    @Version
+    @Column(name = "version")
+    @JsonProperty("version")
+    private Long version;
+
+    public Patient(Long id, String name, String age) {
+        this(id, name, age, null);
+    }
 
 }
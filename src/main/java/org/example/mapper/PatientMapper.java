@@ -3,6 +3,11 @@ package org.example.mapper;
 import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
 
+import java.util.ArrayList;
+import java.util.List;
+
+// Hand-written on purpose: plain constructor calls, no builder and no reflection,
+// so a conversion allocates exactly the target object.
 public class PatientMapper {
 
     // Convert Entity -> DTO
@@ -11,11 +16,7 @@ public class PatientMapper {
             return null;
         }
 
-        return PatientDTO.builder()
-                .id(patient.getId())
-                .name(patient.getName())
-                .age(patient.getAge())
-                .build();
+        return new PatientDTO(patient.getId(), patient.getName(), patient.getAge());
     }
 
     // Convert DTO -> Entity
@@ -24,10 +25,56 @@ public class PatientMapper {
             return null;
         }
 
-        return Patient.builder()
-                .id(dto.getId())
-                .name(dto.getName())
-                .age(dto.getAge())
-                .build();
+        return new Patient(dto.getId(), dto.getName(), dto.getAge());
+    }
+
+    // Bulk variants: output sized up front, null elements stay null
+
+    public static List<PatientDTO> toDTOs(List<Patient> patients) {
+        if (patients == null) {
+            return null;
+        }
+
+        List<PatientDTO> dtos = new ArrayList<>(patients.size());
+        for (Patient patient : patients) {
+            dtos.add(toDTO(patient));
+        }
+        return dtos;
+    }
+
+    public static List<Patient> toEntities(List<PatientDTO> dtos) {
+        if (dtos == null) {
+            return null;
+        }
+
+        List<Patient> patients = new ArrayList<>(dtos.size());
+        for (PatientDTO dto : dtos) {
+            patients.add(toEntity(dto));
+        }
+        return patients;
+    }
+
+    public static PatientDTO[] toDTOs(Patient[] patients) {
+        if (patients == null) {
+            return null;
+        }
+
+        PatientDTO[] dtos = new PatientDTO[patients.length];
+        for (int i = 0; i < patients.length; i++) {
+            dtos[i] = toDTO(patients[i]);
+        }
+        return dtos;
+    }
+
+    public static Patient[] toEntities(PatientDTO[] dtos) {
+        if (dtos == null) {
+            return null;
+        }
+
+        Patient[] patients = new Patient[dtos.length];
+        for (int i = 0; i < dtos.length; i++) {
+            patients[i] = toEntity(dtos[i]);
+        }
+        return patients;
     }
 }
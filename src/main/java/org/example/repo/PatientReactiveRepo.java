@@ -0,0 +1,83 @@
+package org.example.repo;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Readable;
+import org.example.dto.PatientDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the patients table over R2DBC (created by ReactiveConfig).
+ * Same statements as PatientRepo, mapped straight into DTOs. Every method is a single
+ * auto-committed statement, so no reactive transaction manager is needed.
+ * Writes bypass Hibernate: callers evict its second-level cache themselves.
+ */
+public class PatientReactiveRepo implements DisposableBean {
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+
+    public PatientReactiveRepo(ConnectionPool pool) {
+        this.pool = pool;
+        this.client = DatabaseClient.create(pool);
+    }
+
+    public Mono<PatientDTO> findDtoById(Long id) {
+        return client.sql("SELECT id, name, age FROM patients WHERE id = :id")
+                .bind("id", id)
+                .map(PatientReactiveRepo::toDto)
+                .one();
+    }
+
+    // Rows are fetched as the subscriber requests them
+    public Flux<PatientDTO> streamAllAsDto() {
+        return client.sql("SELECT id, name, age FROM patients ORDER BY id")
+                .map(PatientReactiveRepo::toDto)
+                .all();
+    }
+
+    // Next value of the shared sequence, used as the id itself. Hibernate (allocationSize 50)
+    // takes the 50 ids ending at each value it fetches, so a value fetched here is never one of them
+    public Mono<Long> nextId() {
+        return client.sql("SELECT NEXT VALUE FOR patients_seq")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    // Insert-or-update in one statement, same MERGE as PatientRepo.upsert (bumps the version)
+    public Mono<Long> upsert(Long id, String name, Integer age) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql(PatientRepo.UPSERT_SQL)
+                .bind("id", id);
+        spec = name == null ? spec.bindNull("name", String.class) : spec.bind("name", name);
+        spec = age == null ? spec.bindNull("age", Integer.class) : spec.bind("age", age);
+        return spec.fetch().rowsUpdated();
+    }
+
+    // Same UPDATE as PatientRepo.updateExisting (bumps the version): 0 when the row does not exist
+    public Mono<Long> update(Long id, String name, Integer age) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql(PatientRepo.UPDATE_SQL)
+                .bind("id", id);
+        spec = name == null ? spec.bindNull("name", String.class) : spec.bind("name", name);
+        spec = age == null ? spec.bindNull("age", Integer.class) : spec.bind("age", age);
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return client.sql("DELETE FROM patients WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+
+    private static PatientDTO toDto(Readable row) {
+        Integer age = row.get("age", Integer.class);
+        return new PatientDTO(row.get("id", Long.class), row.get("name", String.class), age == null ? null : age.toString());
+    }
+}
@@ -1,7 +1,137 @@
 package org.example.repo;
 
+import jakarta.persistence.QueryHint;
+import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Query methods declared here are read-only (replica, no flush, no dirty checking) unless
+// they run inside a caller's read-write transaction; inherited writes keep their own settings
+@Transactional(readOnly = true)
 public interface PatientRepo extends JpaRepository<Patient,Long> {
+
+    // Forward-only cursor straight into DTOs: nothing lands in the persistence context.
+    // Must be consumed inside a transaction and closed by the caller.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p order by p.id")
+    Stream<PatientDTO> streamAllAsDto();
+
+    // Keyset page: seeks past the last id seen through the primary key index, no OFFSET
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p where p.id > :lastSeenId order by p.id")
+    List<PatientDTO> findPageAfter(@Param("lastSeenId") Long lastSeenId, Limit limit);
+
+    // Standard MERGE so an update can bump the version (MERGE ... KEY only replaces the row).
+    // Written in the Oracle dialect, which H2 also accepts: one-row source SELECT ... FROM dual,
+    // NUMBER / VARCHAR2 casts (typed binds), ON condition in parentheses.
+    // Shared with PatientReactiveRepo.
+    String UPSERT_SQL = "MERGE INTO patients p"
+            + " USING (SELECT CAST(:id AS NUMBER(19)) AS id, CAST(:name AS VARCHAR2(255)) AS name,"
+            + " CAST(:age AS NUMBER(10)) AS age FROM dual) s"
+            + " ON (p.id = s.id)"
+            + " WHEN MATCHED THEN UPDATE SET p.name = s.name, p.age = s.age, p.version = p.version + 1"
+            + " WHEN NOT MATCHED THEN INSERT (id, name, age, version) VALUES (s.id, s.name, s.age, 0)";
+
+    // Insert-or-update by id in one statement, no SELECT first. The native spaces hint tells
+    // Hibernate which table changed, so only Patient cache data and queries over patients are
+    // invalidated. age is the column value: the native statement bypasses AgeConverter.
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "patients"))
+    @Query(nativeQuery = true, value = UPSERT_SQL)
+    int upsert(@Param("id") Long id, @Param("name") String name, @Param("age") Integer age);
+
+    // Update-only variant of UPSERT_SQL: 0 when the row does not exist. Shared with PatientReactiveRepo.
+    String UPDATE_SQL = "UPDATE patients SET name = :name, age = :age, version = version + 1 WHERE id = :id";
+
+    // Update-only variant of upsert for ids the sequence owns: 0 when the row does not exist
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "patients"))
+    @Query(nativeQuery = true, value = UPDATE_SQL)
+    int updateExisting(@Param("id") Long id, @Param("name") String name, @Param("age") Integer age);
+
+    // Optimistic-locking update: only applies while the row still has the expected version,
+    // and bumps it. 0 when the row changed since that version was read (or does not exist)
+    @Modifying
+    @Transactional
+    @Query("update versioned Patient p set p.name = :name, p.age = :age where p.id = :id and p.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("version") Long version,
+                        @Param("name") String name, @Param("age") String age);
+
+    // Set-based delete of one chunk of ids: no entity is loaded. Hibernate drops the Patient
+    // second-level cache region and invalidates cached queries over patients afterwards
+    @Modifying
+    @Transactional
+    @Query("delete from Patient p where p.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Next chunk of ids in an age range after lastId, for chunked purges by age
+    @Query("select p.id from Patient p where p.age between :minAge and :maxAge and p.id > :lastId order by p.id")
+    List<Long> findIdsByAgeAfter(@Param("minAge") String minAge, @Param("maxAge") String maxAge,
+                                 @Param("lastId") Long lastId, Limit limit);
+
+    // Keyset page of an age range, read in (age, id) order from idx_patients_age.
+    // Ages are strings like the attribute, AgeConverter binds them as integers.
+    // The first page starts at (minAge, 0); later pages after the last (age, id) seen.
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p"
+            + " where p.age between :minAge and :maxAge"
+            + " and (p.age > :lastAge or (p.age = :lastAge and p.id > :lastId))"
+            + " order by p.age, p.id")
+    List<PatientDTO> findAgePageAfter(@Param("minAge") String minAge, @Param("maxAge") String maxAge,
+                                      @Param("lastAge") String lastAge, @Param("lastId") Long lastId,
+                                      Limit limit);
+
+    // Single row for read-only DTO endpoints: three columns, no managed entity,
+    // no dirty-checking snapshot. Result kept in the query cache until the table changes.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "patients-queries")
+    })
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p where p.id = :id")
+    Optional<PatientDTO> findDtoById(@Param("id") Long id);
+
+    // Version alone, for conditional GETs when the patient is not cached; the query cache
+    // answers repeated checks until the table changes
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "patients-queries")
+    })
+    @Query("select p.version from Patient p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Current versions of many rows at once: [id, version] pairs
+    @Query("select p.id, p.version from Patient p where p.id in :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // All ids, used to rebuild the in-memory id filter
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id from Patient p")
+    Stream<Long> streamAllIds();
+
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p where p.id in :ids order by p.id")
+    List<PatientDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Full scan, only used while the in-memory name index is not built yet; repeated
+    // names are answered from the query cache until the table changes
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "patients-queries")
+    })
+    @Query("select new org.example.dto.PatientDTO(p.id, p.name, p.age) from Patient p where lower(p.name) = lower(:name) order by p.id")
+    List<PatientDTO> findDtosByNameIgnoreCase(@Param("name") String name);
 }
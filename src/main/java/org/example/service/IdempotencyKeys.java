@@ -0,0 +1,85 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of each write done under an Idempotency-Key, so a client retry
+ * gets the first answer back instead of writing again. A late retry therefore cannot
+ * overwrite a newer change made by someone else in between.
+ * Keys live in memory for patients.idempotency.ttl; a failed write stores nothing.
+ */
+@Component
+public class IdempotencyKeys {
+
+    // response is completed by the first caller once its write is done
+    private record Entry(Object request, CompletableFuture<Object> response) {
+    }
+
+    private final Cache<String, Entry> entries;
+
+    @Autowired
+    public IdempotencyKeys(@Value("${patients.idempotency.maximum-size:100000}") long maximumSize,
+                           @Value("${patients.idempotency.ttl:24h}") Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code write} once per key. Concurrent calls with the same key wait for the first
+     * one; later calls get its result. Reusing a key for a different request throws
+     * IllegalStateException.
+     * The write runs outside the cache's locks: only a placeholder is inserted atomically,
+     * so a slow write never blocks callers of other keys.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Supplier<T> write) {
+        while (true) {
+            Entry mine = new Entry(request, new CompletableFuture<>());
+            Entry entry = entries.asMap().putIfAbsent(key, mine);
+            if (entry == null) {
+                return run(key, mine, write);
+            }
+            if (!Objects.equals(entry.request(), request)) {
+                throw new IllegalStateException("Idempotency-Key " + key + " was already used for a different request");
+            }
+            try {
+                return (T) entry.response().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for Idempotency-Key " + key, e);
+            } catch (ExecutionException e) {
+                // The first write failed and stored nothing: try again, as a new first caller
+            }
+        }
+    }
+
+    private <T> T run(String key, Entry entry, Supplier<T> write) {
+        try {
+            T response = write.get();
+            entry.response().complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(key, entry);
+            entry.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Whether a result is stored for the key (a write still running does not count)
+    public boolean contains(String key) {
+        Entry entry = entries.getIfPresent(key);
+        return entry != null && entry.response().isDone() && !entry.response().isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.entity.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of patients by id, filled by PatientService.getPatient after a load.
+ * Also remembers which ids were written in the last primary-read-window, so their loads can
+ * skip a replica that may not have the write yet (and would otherwise cache the old row).
+ * Statistics are published as the Micrometer "cache.*" meters with cache=patients, including
+ * cache.load / cache.load.duration for the database loads getPatient runs on a miss.
+ */
+@Component
+public class PatientCache implements MeterBinder {
+
+    // Write counters striped by id: a load only caches its row if no write hit its stripe meanwhile
+    private static final int WRITE_STAMP_STRIPES = 1024;
+
+    private final Cache<Long, Patient> cache;
+    // Loads run outside Caffeine (see load), so their time and outcome are recorded here by hand
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+    private final Cache<Long, Boolean> recentWrites;
+    private final long primaryReadWindowNanos;
+    private volatile long lastEvictAll;
+
+    @Autowired
+    public PatientCache(@Value("${patients.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${patients.cache.ttl:10m}") Duration ttl,
+                        @Value("${patients.cache.primary-read-window:5s}") Duration primaryReadWindow) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats(() -> stats)
+                .build();
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(Math.max(maximumSize, 1))
+                .expireAfterWrite(primaryReadWindow)
+                .build();
+        this.primaryReadWindowNanos = primaryReadWindow.toNanos();
+        this.lastEvictAll = System.nanoTime() - primaryReadWindowNanos;
+    }
+
+    public Patient getIfPresent(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    // Cache miss: runs the loader outside any cache lock and caches its result unless the id
+    // was written meanwhile (the row could be older than the write). Null results are not
+    // cached. Time and outcome go to the cache.load meters, as for a Caffeine load
+    public Patient load(Long id, Function<Long, Patient> loader) {
+        long stamp = writeStamps.get(stripe(id));
+        long start = System.nanoTime();
+        Patient loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException | Error e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        if (loaded == null) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            return null;
+        }
+        stats.recordLoadSuccess(System.nanoTime() - start);
+        putIfNotWrittenSince(id, loaded, stamp);
+        return loaded;
+    }
+
+    // Drops the entry now and, inside a transaction, once more after it completes,
+    // so a reader that loaded the old row in between cannot leave it behind.
+    // The id counts as recently written from then on (and again from the commit)
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        markWritten(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    markWritten(id);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        lastEvictAll = System.nanoTime();
+        for (int i = 0; i < WRITE_STAMP_STRIPES; i++) {
+            writeStamps.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    // Written (or evicted) within the primary-read-window: the replica may still have the old row
+    public boolean isRecentlyWritten(Long id) {
+        return recentWrites.getIfPresent(id) != null
+                || System.nanoTime() - lastEvictAll < primaryReadWindowNanos;
+    }
+
+    // Stamp first: a load that checks its stamp after this does not cache, one that cached
+    // before it is invalidated below
+    private void markWritten(Long id) {
+        writeStamps.incrementAndGet(stripe(id));
+        if (primaryReadWindowNanos > 0) {
+            recentWrites.put(id, Boolean.TRUE);
+        }
+        cache.invalidate(id);
+    }
+
+    // asMap() put/remove record no statistics. A write between the check and the put bumps
+    // the stamp before invalidating: either the invalidation removes the entry or the
+    // second check does
+    private void putIfNotWrittenSince(Long id, Patient patient, long stamp) {
+        if (writeStamps.get(stripe(id)) != stamp) {
+            return;
+        }
+        cache.asMap().put(id, patient);
+        if (writeStamps.get(stripe(id)) != stamp) {
+            cache.asMap().remove(id, patient);
+        }
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (WRITE_STAMP_STRIPES - 1);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache, "patients", Tags.empty()).bindTo(registry);
+        // CaffeineCacheMetrics only publishes these for a LoadingCache; same names and tags
+        Tags tags = Tags.of("cache", "patients");
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadSuccessCount())
+                .tags(tags).tag("result", "success")
+                .description("The number of times cache lookup methods have successfully loaded a new value")
+                .register(registry);
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadFailureCount())
+                .tags(tags).tag("result", "failure")
+                .description("The number of times a load returned null or failed")
+                .register(registry);
+        TimeGauge.builder("cache.load.duration", cache, TimeUnit.NANOSECONDS, c -> c.stats().totalLoadTime())
+                .tags(tags)
+                .description("The time the cache has spent loading new values")
+                .register(registry);
+    }
+}
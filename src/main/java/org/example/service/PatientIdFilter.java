@@ -0,0 +1,156 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over the ids stored in the patients table.
+ * "false" from {@link #mightContain} means the id certainly does not exist, "true" means the
+ * database has to be asked. Until the first {@link #rebuild} it answers "true" for every id.
+ * Ids above the highest one it has seen also answer "true": they are most likely new rows
+ * from another writer, which only the next rebuild adds.
+ * Deleted ids stay in the filter and simply fall through to the database.
+ */
+@Component
+public class PatientIdFilter implements MeterBinder {
+
+    private final int numBits;
+    private final int numHashes;
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong maxId = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile AtomicLongArray bits;
+    // Second bit set filled while a rebuild is scanning the table
+    private volatile AtomicLongArray building;
+    private volatile boolean ready;
+
+    @Autowired
+    public PatientIdFilter(@Value("${patients.id-filter.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${patients.id-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+        this.bits = newBits();
+    }
+
+    public boolean mightContain(Long id) {
+        if (!ready || id == null || id > maxId.get()) {
+            return true;
+        }
+        AtomicLongArray current = bits;
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((current.get(bit >>> 6) & (1L << bit)) == 0) {
+                rejected.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Inside a transaction the id is added again after the commit: a rebuild whose table scan
+    // started before the commit cannot see the row, and may have swapped its sets in after this add
+    public void add(Long id) {
+        if (id == null) {
+            return;
+        }
+        addNow(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(id);
+                }
+            });
+        }
+    }
+
+    private void addNow(Long id) {
+        maxId.accumulateAndGet(id, Math::max);
+        AtomicLongArray current = bits;
+        set(current, id);
+        // Read after writing to the live set: a rebuild that started meanwhile either
+        // sees this id in its table scan or gets it here
+        AtomicLongArray next = building;
+        if (next != null) {
+            set(next, id);
+        }
+        if (bits != current) {
+            // A rebuild swapped the sets while we were writing
+            set(bits, id);
+        }
+    }
+
+    // Replaces the filter with the given ids, e.g. a scan of the patients table
+    public synchronized void rebuild(Iterator<Long> ids) {
+        AtomicLongArray next = newBits();
+        building = next;
+        try {
+            long max = Long.MIN_VALUE;
+            while (ids.hasNext()) {
+                Long id = ids.next();
+                set(next, id);
+                max = Math.max(max, id);
+            }
+            maxId.accumulateAndGet(max, Math::max);
+            bits = next;
+            ready = true;
+        } finally {
+            building = null;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("patients.id.filter.rejected", rejected, LongAdder::doubleValue)
+                .description("Lookups answered as not found without a database call")
+                .register(registry);
+    }
+
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray((numBits + 63) >>> 6);
+    }
+
+    private void set(AtomicLongArray target, Long id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            while (((current = target.get(word)) & mask) == 0
+                    && !target.compareAndSet(word, current, current | mask)) {
+                // retry until the bit is set
+            }
+        }
+    }
+
+    // SplitMix64 finalizer: spreads sequential ids over the whole bit set
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.entity.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent patient lookups that miss the cache:
+ * - single flight: callers asking for an id that is already being loaded wait for that load
+ * - micro-batch: loads of different ids starting within patients.lookup.batch-window of each
+ *   other become one bulk query (at most patients.lookup.max-batch-size ids)
+ * The first caller of a batch runs its query on its own thread, so nothing else is started.
+ * It only waits while other single-flight lookups are running that may still join: a lone
+ * lookup is queried at once, and the wait ends as soon as the last of them has joined.
+ * Published as patients.lookup.collapsed{reason=single-flight|micro-batch} and patients.lookup.batches.
+ */
+@Component
+public class PatientLookupCoalescer implements MeterBinder {
+
+    // Filled under the lock; read by its leader once the batch is closed
+    private static final class Batch {
+        final List<Long> ids = new ArrayList<>();
+        final Map<Long, CompletableFuture<Patient>> results = new HashMap<>();
+
+        CompletableFuture<Patient> add(Long id) {
+            return results.computeIfAbsent(id, k -> {
+                ids.add(k);
+                return new CompletableFuture<>();
+            });
+        }
+    }
+
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<Long, CompletableFuture<Patient>> inFlight = new ConcurrentHashMap<>();
+    // ReentrantLock rather than synchronized: waiting must not pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when the open batch is full or a lookup that could still join it no longer can
+    private final Condition batchFull = lock.newCondition();
+    private volatile Batch open;
+    // Single-flight loads that have not called batched (yet): the only lookups worth waiting for
+    private final AtomicInteger unbatched = new AtomicInteger();
+    private final ThreadLocal<Boolean> counted = new ThreadLocal<>();
+
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder batchedLookups = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @Autowired
+    public PatientLookupCoalescer(@Value("${patients.lookup.batch-window:1ms}") Duration batchWindow,
+                                  @Value("${patients.lookup.max-batch-size:100}") int maxBatchSize) {
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    // Runs load once per id at a time; concurrent callers for the same id share its result
+    public Patient singleFlight(Long id, Function<Long, Patient> load) {
+        CompletableFuture<Patient> mine = new CompletableFuture<>();
+        CompletableFuture<Patient> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            joined.increment();
+            return await(running);
+        }
+        boolean outer = counted.get() != null;
+        if (!outer) {
+            unbatched.incrementAndGet();
+            counted.set(Boolean.TRUE);
+        }
+        try {
+            mine.complete(load.apply(id));
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+        } finally {
+            if (!outer && counted.get() != null) {
+                // Answered without batched (e.g. from the cache): the open batch stops waiting for it
+                leaveUnbatched();
+            }
+            inFlight.remove(id, mine);
+        }
+        return await(mine);
+    }
+
+    /**
+     * Loads the id together with the other ids requested within the batch window.
+     * {@code bulkLoad} gets the ids of one batch and returns the patients found, by id;
+     * an id missing from the map does not exist. A lone id is a batch of one.
+     */
+    public Patient batched(Long id, Function<List<Long>, Map<Long, Patient>> bulkLoad) {
+        Batch led = null;
+        CompletableFuture<Patient> result;
+        lock.lock();
+        try {
+            if (counted.get() != null) {
+                counted.remove();
+                unbatched.decrementAndGet();
+            }
+            if (open == null) {
+                // First id of a new batch: this caller waits for the window and runs the query
+                open = new Batch();
+                led = open;
+            }
+            result = open.add(id);
+            if (open.ids.size() >= maxBatchSize) {
+                open = null;
+                batchFull.signalAll();
+            } else if (led == null && unbatched.get() == 0) {
+                // Last lookup the leader was waiting for
+                batchFull.signalAll();
+            }
+            if (led != null) {
+                awaitBatch(led);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (led != null) {
+            runBatch(led, bulkLoad);
+        }
+        return await(result);
+    }
+
+    // Leader only, lock held: wait for more ids until the window ends, the batch is full or
+    // no other lookup is left that could join
+    private void awaitBatch(Batch batch) {
+        long remaining = batchWindowNanos;
+        try {
+            while (open == batch && remaining > 0 && unbatched.get() > 0) {
+                remaining = batchFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (open == batch) {
+                open = null;
+            }
+        }
+    }
+
+    private void leaveUnbatched() {
+        counted.remove();
+        unbatched.decrementAndGet();
+        // open is written before the leader reads unbatched: either it sees this decrement,
+        // or this sees its batch and wakes it up
+        if (open != null) {
+            lock.lock();
+            try {
+                batchFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void runBatch(Batch batch, Function<List<Long>, Map<Long, Patient>> bulkLoad) {
+        batches.increment();
+        batchedLookups.add(batch.ids.size());
+        try {
+            Map<Long, Patient> found = bulkLoad.apply(batch.ids);
+            batch.results.forEach((id, result) -> result.complete(found.get(id)));
+        } catch (RuntimeException | Error e) {
+            batch.results.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private static Patient await(CompletableFuture<Patient> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a patient lookup", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("patients.lookup.collapsed", joined, LongAdder::sum)
+                .tag("reason", "single-flight")
+                .description("Lookups that waited for a load of the same id already in flight")
+                .register(registry);
+        FunctionCounter.builder("patients.lookup.collapsed", this, c -> c.batchedLookups.sum() - c.batches.sum())
+                .tag("reason", "micro-batch")
+                .description("Lookups answered by another lookup's bulk query")
+                .register(registry);
+        FunctionCounter.builder("patients.lookup.batches", batches, LongAdder::sum)
+                .description("Queries issued for batched lookups")
+                .register(registry);
+    }
+}
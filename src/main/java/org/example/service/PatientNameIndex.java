@@ -0,0 +1,361 @@
+package org.example.service;
+
+import org.example.dto.PatientDTO;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory name index: exact case-insensitive lookups, prefix search and
+ * edit-distance bounded fuzzy search over patient names.
+ * It only produces candidate ids: callers load the rows and re-check the name,
+ * so an entry that is briefly out of date never leaks into a response.
+ * Rows written by other instances or straight into the database only show up after
+ * the next {@link #rebuild}.
+ */
+@Component
+public class PatientNameIndex {
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[\\s\\-,.']+");
+    private static final int GRAM = 3;
+
+    // full folded name → ids
+    private final ConcurrentHashMap<String, Set<Long>> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> nameById = new ConcurrentHashMap<>();
+    // full name and each word → ids, sorted for prefix scans
+    private final ConcurrentSkipListMap<String, Set<Long>> idsByToken = new ConcurrentSkipListMap<>();
+    // trigram → tokens containing it, used to find fuzzy candidates
+    private final ConcurrentHashMap<String, Set<String>> tokensByGram = new ConcurrentHashMap<>();
+    // Token and gram maps are updated together; writers take this lock, readers never do
+    private final Object tokenLock = new Object();
+    // Ids put or removed while a rebuild is scanning the table
+    private volatile Set<Long> writtenDuringRebuild;
+    private volatile boolean ready;
+
+    public static String fold(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Inside a transaction the write is applied again after the commit: a rebuild that read
+    // the row before the commit may have put the old name back meanwhile
+    public void put(Long id, String name) {
+        if (id == null) {
+            return;
+        }
+        putNow(id, name);
+        afterCommit(() -> putNow(id, name));
+    }
+
+    private void putNow(Long id, String name) {
+        markWritten(id);
+        String key = fold(name);
+        // compute() serializes updates per id, so a rename cannot race with itself
+        nameById.compute(id, (k, previous) -> {
+            if (previous != null && !previous.equals(key)) {
+                unlink(previous, id);
+            }
+            if (key != null) {
+                link(key, id);
+            }
+            return key;
+        });
+    }
+
+    // Brings the index in line with a table scan: adds rows and renames made elsewhere and
+    // drops ids the scan no longer returns. A put or remove made while the scan runs is
+    // newer than what the scan read, so it is kept
+    public synchronized void rebuild(Iterator<PatientDTO> rows) {
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        writtenDuringRebuild = written;
+        try {
+            Set<Long> seen = new HashSet<>();
+            while (rows.hasNext()) {
+                PatientDTO row = rows.next();
+                Long id = row.getId();
+                seen.add(id);
+                String key = fold(row.getName());
+                nameById.compute(id, (k, previous) -> {
+                    if (written.contains(id) || (previous == null ? key == null : previous.equals(key))) {
+                        return previous;
+                    }
+                    if (previous != null) {
+                        unlink(previous, id);
+                    }
+                    if (key != null) {
+                        link(key, id);
+                    }
+                    return key;
+                });
+            }
+            for (Long id : nameById.keySet()) {
+                if (!seen.contains(id)) {
+                    nameById.computeIfPresent(id, (k, previous) -> {
+                        if (written.contains(id)) {
+                            return previous;
+                        }
+                        unlink(previous, id);
+                        return null;
+                    });
+                }
+            }
+            ready = true;
+        } finally {
+            writtenDuringRebuild = null;
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        removeNow(id);
+        afterCommit(() -> removeNow(id));
+    }
+
+    private void removeNow(Long id) {
+        markWritten(id);
+        nameById.computeIfPresent(id, (k, previous) -> {
+            unlink(previous, id);
+            return null;
+        });
+    }
+
+    // Snapshot of the ids currently stored under the name, empty when unknown
+    public Set<Long> findIds(String name) {
+        Set<Long> ids = name == null ? null : idsByName.get(fold(name));
+        return ids == null ? Set.of() : Set.copyOf(ids);
+    }
+
+    /**
+     * Ranked candidate ids for a type-ahead query: names with a word starting with the
+     * query first (in token order), then, when {@code fuzzy} is set, words within
+     * {@link #maxEdits} of the query ordered by distance.
+     */
+    public List<Long> search(String query, int limit, boolean fuzzy) {
+        String q = normalizeQuery(query);
+        LinkedHashSet<Long> ranked = new LinkedHashSet<>();
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        for (Map.Entry<String, Set<Long>> entry : idsByToken.tailMap(q, true).entrySet()) {
+            if (!entry.getKey().startsWith(q) || ranked.size() >= limit) {
+                break;
+            }
+            addSorted(ranked, entry.getValue(), limit);
+        }
+
+        int edits = maxEdits(q);
+        if (fuzzy && edits > 0 && ranked.size() < limit) {
+            for (String token : fuzzyTokens(q, edits)) {
+                Set<Long> ids = idsByToken.get(token);
+                if (ids != null) {
+                    addSorted(ranked, ids, limit);
+                }
+                if (ranked.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(ranked);
+    }
+
+    // Re-check of a loaded name against a search query, same rules as search()
+    public static boolean matches(String name, String query, boolean fuzzy) {
+        String q = normalizeQuery(query);
+        if (name == null || q.isEmpty()) {
+            return false;
+        }
+        int edits = fuzzy ? maxEdits(q) : 0;
+        for (String token : tokens(fold(name))) {
+            if (token.startsWith(q) || (edits > 0 && distance(q, token, edits) <= edits)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Allowed typos grow with the query: 0 up to 2 chars, 1 up to 5, then 2
+    public static int maxEdits(String query) {
+        int length = query.length();
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void markWritten(Long id) {
+        Set<Long> written = writtenDuringRebuild;
+        if (written != null) {
+            written.add(id);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private List<String> fuzzyTokens(String q, int edits) {
+        // Each edit destroys at most GRAM of the padded grams, so a token within
+        // the allowed distance shares at least this many grams with the query
+        Set<String> queryGrams = grams(q);
+        int required = queryGrams.size() - GRAM * edits;
+
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens != null) {
+                for (String token : tokens) {
+                    shared.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Integer> distances = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String token = entry.getKey();
+            if (entry.getValue() >= required && Math.abs(token.length() - q.length()) <= edits) {
+                int d = distance(q, token, edits);
+                if (d <= edits) {
+                    distances.put(token, d);
+                }
+            }
+        }
+
+        List<String> result = new ArrayList<>(distances.keySet());
+        result.sort(Comparator.comparing((String token) -> distances.get(token)).thenComparing(token -> token));
+        return result;
+    }
+
+    private void link(String key, Long id) {
+        idsByName.compute(key, (n, ids) -> add(ids, id));
+        synchronized (tokenLock) {
+            for (String token : tokens(key)) {
+                Set<Long> ids = idsByToken.get(token);
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                    for (String gram : grams(token)) {
+                        tokensByGram.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(token);
+                    }
+                    idsByToken.put(token, ids);
+                }
+                ids.add(id);
+            }
+        }
+    }
+
+    private void unlink(String key, Long id) {
+        idsByName.computeIfPresent(key, (n, ids) -> remove(ids, id));
+        synchronized (tokenLock) {
+            for (String token : tokens(key)) {
+                Set<Long> ids = idsByToken.get(token);
+                if (ids != null && remove(ids, id) == null) {
+                    idsByToken.remove(token);
+                    for (String gram : grams(token)) {
+                        tokensByGram.computeIfPresent(gram, (g, tokens) -> {
+                            tokens.remove(token);
+                            return tokens.isEmpty() ? null : tokens;
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<Long> add(Set<Long> ids, Long id) {
+        Set<Long> target = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+        target.add(id);
+        return target;
+    }
+
+    private static Set<Long> remove(Set<Long> ids, Long id) {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+    }
+
+    private static void addSorted(Set<Long> ranked, Set<Long> ids, int limit) {
+        for (Long id : new TreeSet<>(ids)) {
+            if (ranked.size() >= limit) {
+                return;
+            }
+            ranked.add(id);
+        }
+    }
+
+    private static String normalizeQuery(String query) {
+        return query == null ? "" : fold(query).trim();
+    }
+
+    // The whole name plus each of its words
+    private static Set<String> tokens(String key) {
+        Set<String> tokens = new LinkedHashSet<>();
+        String trimmed = key.trim();
+        if (!trimmed.isEmpty()) {
+            tokens.add(trimmed);
+        }
+        for (String word : WORD_SEPARATOR.split(trimmed)) {
+            if (!word.isEmpty()) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    // Trigrams of the token padded with GRAM - 1 markers on each side
+    private static Set<String> grams(String token) {
+        String padded = "\u0000\u0000" + token + "\u0000\u0000";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    // Levenshtein distance, gives up with max + 1 as soon as the bound is exceeded
+    private static int distance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
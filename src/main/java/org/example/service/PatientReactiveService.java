@@ -0,0 +1,101 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.dto.PatientDTO;
+import org.example.entity.AgeConverter;
+import org.example.entity.Patient;
+import org.example.mapper.PatientMapper;
+import org.example.repo.PatientReactiveRepo;
+import org.hibernate.SessionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of PatientService's get / save / delete, over R2DBC.
+ * Shares the in-memory id filter, name index and patient cache with the blocking side;
+ * those are plain in-memory calls, so nothing here blocks a reactive thread.
+ */
+@Service
+@ConditionalOnProperty(name = "patients.reactive.enabled", havingValue = "true")
+public class PatientReactiveService {
+
+    private static final AgeConverter AGE_CONVERTER = new AgeConverter();
+
+    private final PatientReactiveRepo patientReactiveRepo;
+    private final PatientCache patientCache;
+    private final PatientIdFilter patientIdFilter;
+    private final PatientNameIndex patientNameIndex;
+    private final SessionFactory sessionFactory;
+
+    public PatientReactiveService(PatientReactiveRepo patientReactiveRepo,
+                                  PatientCache patientCache,
+                                  PatientIdFilter patientIdFilter,
+                                  PatientNameIndex patientNameIndex,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.patientReactiveRepo = patientReactiveRepo;
+        this.patientCache = patientCache;
+        this.patientIdFilter = patientIdFilter;
+        this.patientNameIndex = patientNameIndex;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    // Empty when the patient does not exist
+    public Mono<PatientDTO> getPatient(Long id) {
+        if (!patientIdFilter.mightContain(id)) {
+            return Mono.empty();
+        }
+        Patient cached = patientCache.getIfPresent(id);
+        if (cached != null) {
+            return Mono.just(PatientMapper.toDTO(cached));
+        }
+        return patientReactiveRepo.findDtoById(id);
+    }
+
+    // Whole table in id order, read as fast as the client consumes it
+    public Flux<PatientDTO> streamPatients() {
+        return patientReactiveRepo.streamAllAsDto();
+    }
+
+    // Like PatientService.save: updates the row with the DTO's id, or inserts under a new id
+    // from the sequence. An unknown id is never inserted as is: it could be one the sequence
+    // (and Hibernate's pooled blocks) hands out later
+    public Mono<PatientDTO> save(PatientDTO dto) {
+        Integer age;
+        try {
+            age = AGE_CONVERTER.convertToDatabaseColumn(dto.getAge());
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        Mono<Long> updated = dto.getId() == null ? Mono.empty()
+                : patientReactiveRepo.update(dto.getId(), dto.getName(), age)
+                        .filter(rows -> rows > 0)
+                        .map(rows -> dto.getId());
+        Mono<Long> inserted = Mono.defer(patientReactiveRepo::nextId)
+                .flatMap(patientId -> patientReactiveRepo.upsert(patientId, dto.getName(), age).thenReturn(patientId));
+        return updated.switchIfEmpty(inserted)
+                .map(patientId -> {
+                    patientIdFilter.add(patientId);
+                    patientNameIndex.put(patientId, dto.getName());
+                    evict(patientId);
+                    return new PatientDTO(patientId, dto.getName(), dto.getAge());
+                });
+    }
+
+    public Mono<Void> delete(Long id) {
+        return patientReactiveRepo.deleteById(id)
+                .doOnSuccess(deleted -> {
+                    patientNameIndex.remove(id);
+                    evict(id);
+                })
+                .then();
+    }
+
+    // R2DBC writes are invisible to Hibernate: drop the entity and the cached query results too
+    private void evict(Long id) {
+        patientCache.evict(id);
+        sessionFactory.getCache().evict(Patient.class, id);
+        sessionFactory.getCache().evictQueryRegion("patients-queries");
+    }
+}
@@ -1,14 +1,62 @@
 package org.example.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.config.ReadWriteRoutingDataSource;
+import org.example.dto.BatchGetItem;
+import org.example.dto.BulkChunkResult;
+import org.example.dto.BulkDeleteChunkResult;
+import org.example.dto.BulkDeleteResult;
+import org.example.dto.BulkImportResult;
 import org.example.dto.PatientDTO;
+import org.example.dto.PatientPage;
+import org.example.dto.WriteTicket;
+import org.example.entity.AgeConverter;
 import org.example.entity.Patient;
 import org.example.mapper.PatientMapper;
 import org.example.repo.PatientRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PatientService {
@@ -20,57 +68,790 @@ public class PatientService {
             new Patient(3L, "Md", "40")
     );
 
+    // Case-folded name → patient, built once from the list above
+    private final Map<String, Patient> patientsByName = patients
+            .stream()
+            .collect(Collectors.toUnmodifiableMap(p -> PatientNameIndex.fold(p.getName()), p -> p));
+
     public Patient printName(String name) {
 
-        Patient patient = patients
-                .stream()
-                .filter(p -> p.getName().equalsIgnoreCase(name))
-                .findAny()
-                .orElse(null);
+        Patient patient = name == null ? null : patientsByName.get(PatientNameIndex.fold(name));
 
         if (patient == null) {
             return new Patient(null, "NOTHING", null);
         }
 
-        patient.setName(patient.getName().toUpperCase());
-        return patient;
+        // Return a copy, the shared entry must not be changed
+        return new Patient(patient.getId(), patient.getName().toUpperCase(), patient.getAge());
     }
 
     @Autowired
     private PatientRepo patientRepo;
 
+    @Autowired
+    private PatientCache patientCache;
+
+    @Autowired
+    private PatientIdFilter patientIdFilter;
+
+    @Autowired
+    private PatientNameIndex patientNameIndex;
+
+    @Autowired
+    private PatientWriteBehind patientWriteBehind;
+
+    @Autowired
+    private PatientLookupCoalescer patientLookupCoalescer;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AsyncTaskExecutor taskExecutor;
+
+    @Value("${patients.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Value("${patients.bulk.queue-capacity:2}")
+    private int bulkQueueCapacity;
+
+    @Value("${patients.list.max-page-size:500}")
+    private int maxPageSize;
+
+    @Value("${patients.search.max-results:50}")
+    private int maxSearchResults;
+
+    @Value("${patients.batch-get.max-ids:1000}")
+    private int maxBatchGetIds;
+
+    private static final int IN_CHUNK_SIZE = 500;
+
+    private static final AgeConverter AGE_CONVERTER = new AgeConverter();
+
+    // Marks the end of an NDJSON upload for the writer thread
+    private static final List<Patient> END_OF_STREAM = List.of();
 
     public Patient getPatient (Long id){
-        Optional<Patient> patient= patientRepo.findById(id);
-        return patient.orElse(null);
+        // Ids the filter has never seen do not exist, no need to ask the DB
+        if (!patientIdFilter.mightContain(id)) {
+            return null;
+        }
+        // Callers for the same id share one lookup; cache misses close together share one query
+        return patientLookupCoalescer.singleFlight(id, this::lookupPatient);
+    }
+
+    // Cache hit, or a batched load that is then cached. The load (and its batch window) runs
+    // outside any cache lock; a write to the id meanwhile keeps its result out of the cache
+    private Patient lookupPatient(Long id) {
+        Patient cached = patientCache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        return patientCache.load(id, key -> patientLookupCoalescer.batched(key, this::loadPatients));
+    }
+
+    // One batch of cache misses; a single id keeps the plain findById
+    private Map<Long, Patient> loadPatients(List<Long> ids) {
+        return readFresh(ids, () -> findPatients(ids));
+    }
+
+    // Reads of ids written in the last primary-read-window go to the primary: the replica may
+    // still have the old row, which the read-through cache or the query cache (patients-queries)
+    // would then keep for their whole TTL
+    private <T> T readFresh(Collection<Long> ids, Supplier<T> reads) {
+        if (ids.stream().anyMatch(patientCache::isRecentlyWritten)) {
+            return ReadWriteRoutingDataSource.readFromPrimary(reads);
+        }
+        return reads.get();
+    }
+
+    private Map<Long, Patient> findPatients(List<Long> ids) {
+        if (ids.size() == 1) {
+            Optional<Patient> patient= patientRepo.findById(ids.get(0));
+            return patient.map(p -> Map.of(p.getId(), p)).orElse(Map.of());
+        }
+        Map<Long, Patient> found = new HashMap<>();
+        for (Patient patient : patientRepo.findAllById(ids)) {
+            found.put(patient.getId(), patient);
+        }
+        return found;
+    }
+
+    // Fills the id filter and the name index once the app is up; until then every lookup goes to the DB.
+    // Rows written by other instances or straight into the database never pass through
+    // patientIdFilter.add or patientNameIndex.put: rescanned every
+    // patients.id-filter.rebuild-interval (SchedulingConfig).
+    // Deliberately not read-only: a lagging replica would leave ids out of the filter, and the
+    // filter treats a missing id as "does not exist"
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIndexes() {
+        try (Stream<Long> ids = patientRepo.streamAllIds()) {
+            patientIdFilter.rebuild(ids.iterator());
+        }
+        try (Stream<PatientDTO> rows = patientRepo.streamAllAsDto()) {
+            patientNameIndex.rebuild(rows.iterator());
+        }
     }
 
+    // A patient with a version is an optimistic-locking write: a stale version fails with
+    // OptimisticLockingFailureException. Without one, the last writer wins as before.
+    // One read-write transaction: the current version is read on the primary, not a replica
+    @Transactional
     public  Patient post_Patient( Patient patient){
 
+         checkAge(patient.getAge());
+         adoptCurrentVersions(List.of(patient));
          patient = this.patientRepo.save(patient);
+         patientIdFilter.add(patient.getId());
+         patientNameIndex.put(patient.getId(), patient.getName());
+         patientCache.evict(patient.getId());
          return patient;
     }
 
 
     public void delete_Patient(Long id) {
          patientRepo.deleteById(id);
+         patientNameIndex.remove(id);
+         patientCache.evict(id);
+
+    }
+    // Purge by id: one DELETE ... WHERE id IN (...) per chunk, each in its own transaction,
+    // without loading the entities. Unknown ids are not counted as deleted.
+    public BulkDeleteResult bulkDelete(Collection<Long> ids) {
+        List<Long> all = ids.stream().filter(Objects::nonNull).distinct().toList();
+        BulkDeleteResult result = new BulkDeleteResult();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size()));
+            Integer deleted = transactionTemplate.execute(status -> patientRepo.deleteByIdIn(chunk));
+            result.add(new BulkDeleteChunkResult(result.getChunks().size(), chunk.size(), deleted));
+            evictDeleted(chunk);
+        }
+        return result;
+    }
+
+    // Purge everyone aged minAge..maxAge (inclusive) in the same chunks: each transaction
+    // reads the next ids from the primary and deletes them, so no statement locks the whole range
+    public BulkDeleteResult bulkDeleteByAge(int minAge, int maxAge) {
+        if (minAge < 0 || maxAge < minAge) {
+            throw new IllegalArgumentException("Invalid age range: " + minAge + "-" + maxAge);
+        }
+        BulkDeleteResult result = new BulkDeleteResult();
+        long lastId = 0L;
+        while (true) {
+            long after = lastId;
+            List<Long> chunk = new ArrayList<>();
+            Integer deleted = transactionTemplate.execute(status -> {
+                chunk.addAll(patientRepo.findIdsByAgeAfter(String.valueOf(minAge), String.valueOf(maxAge),
+                        after, Limit.of(IN_CHUNK_SIZE)));
+                return chunk.isEmpty() ? 0 : patientRepo.deleteByIdIn(chunk);
+            });
+            if (chunk.isEmpty()) {
+                return result;
+            }
+            result.add(new BulkDeleteChunkResult(result.getChunks().size(), chunk.size(), deleted));
+            evictDeleted(chunk);
+            lastId = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    // The id filter cannot forget ids; a deleted id costs one DB lookup, as after delete_Patient
+    private void evictDeleted(List<Long> ids) {
+        for (Long id : ids) {
+            patientNameIndex.remove(id);
+            patientCache.evict(id);
+        }
+    }
 
+    // ETag source for conditional GETs: the version of the cached patient, otherwise a
+    // one-column query. Never loads or caches the patient itself; null when it does not exist
+    public Long getPatientVersion(Long id) {
+        if (!patientIdFilter.mightContain(id)) {
+            return null;
+        }
+        Patient cached = patientCache.getIfPresent(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return readFresh(List.of(id), () -> patientRepo.findVersionById(id)).orElse(null);
     }
+
+    // Read-only view: an entity already in the cache is copied, otherwise the row is
+    // projected straight into the DTO without hydrating a Patient
     public PatientDTO getPatientdto(Long id) {
-        Patient patient = patientRepo.findById(id).orElse(null);
-        return PatientMapper.toDTO(patient);
+        if (!patientIdFilter.mightContain(id)) {
+            return null;
+        }
+        Patient cached = patientCache.getIfPresent(id);
+        if (cached != null) {
+            return PatientMapper.toDTO(cached);
+        }
+        return readFresh(List.of(id), () -> patientRepo.findDtoById(id)).orElse(null);
     }
 
+    // Version read and save in one read-write transaction, on the primary
+    @Transactional
     public PatientDTO save(PatientDTO dto) {
 
-        // DTO → Entity
+        checkAge(dto.getAge());
+
+        // DTO → Entity (no version: last writer wins)
         Patient patientEntity = PatientMapper.toEntity(dto);
+        adoptCurrentVersions(List.of(patientEntity));
 
         // Save in DB
         Patient saved = patientRepo.save(patientEntity);
+        patientIdFilter.add(saved.getId());
+        patientNameIndex.put(saved.getId(), saved.getName());
+        patientCache.evict(saved.getId());
 
         // Entity → DTO
         return PatientMapper.toDTO(saved);
     }
 
+    // Creates or replaces the patient with this id in a single MERGE. Clients can only create
+    // ids below Patient.FIRST_GENERATED_ID: from there up the sequence hands ids out (also from
+    // blocks Hibernate already holds in memory), so such an id may only replace an existing row.
+    // With an idempotency key, a retry returns the first result and writes nothing.
+    public PatientDTO upsert(Long id, PatientDTO dto, String idempotencyKey) {
+        checkPathId(id, dto);
+        PatientDTO request = new PatientDTO(id, dto.getName(), dto.getAge());
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return writeUpsert(request);
+        }
+        return idempotencyKeys.execute(idempotencyKey, request, () -> writeUpsert(request));
+    }
+
+    // Conditional replace (If-Match): only while the patient still has expectedVersion, which
+    // the update bumps by one. Throws OptimisticLockingFailureException when it has changed
+    // since (or does not exist). Replays under the same idempotency key return the first result.
+    public PatientDTO updateIfVersion(Long id, long expectedVersion, PatientDTO dto, String idempotencyKey) {
+        checkPathId(id, dto);
+        PatientDTO request = new PatientDTO(id, dto.getName(), dto.getAge());
+        // A non-numeric age is a bad request, not a failed update
+        checkAge(request.getAge());
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return writeIfVersion(request, expectedVersion);
+        }
+        return idempotencyKeys.execute(idempotencyKey, List.of(request, expectedVersion),
+                () -> writeIfVersion(request, expectedVersion));
+    }
+
+    // Ids below 1 would be stored, but /list, /by-age and bulkDeleteByAge all page from id 0 up
+    private static void checkPathId(Long id, PatientDTO dto) {
+        if (id == null || id < 1) {
+            throw new IllegalArgumentException("Patient id must be 1 or more, got " + id);
+        }
+        if (dto.getId() != null && !dto.getId().equals(id)) {
+            throw new IllegalArgumentException("Body id " + dto.getId() + " does not match path id " + id);
+        }
+    }
+
+    private PatientDTO writeIfVersion(PatientDTO request, long expectedVersion) {
+        int updated = patientRepo.updateIfVersion(request.getId(), expectedVersion, request.getName(), request.getAge());
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException(
+                    "Patient " + request.getId() + " is no longer at version " + expectedVersion);
+        }
+        patientNameIndex.put(request.getId(), request.getName());
+        patientCache.evict(request.getId());
+        return request;
+    }
+
+    private PatientDTO writeUpsert(PatientDTO request) {
+        Integer age = AGE_CONVERTER.convertToDatabaseColumn(request.getAge());
+        if (request.getId() < Patient.FIRST_GENERATED_ID) {
+            patientRepo.upsert(request.getId(), request.getName(), age);
+        } else if (patientRepo.updateExisting(request.getId(), request.getName(), age) == 0) {
+            throw new IllegalArgumentException("Patient " + request.getId() + " does not exist; ids from "
+                    + Patient.FIRST_GENERATED_ID + " up are assigned by the database, create it with POST /Patient/save");
+        }
+        patientIdFilter.add(request.getId());
+        patientNameIndex.put(request.getId(), request.getName());
+        patientCache.evict(request.getId());
+        return request;
+    }
+
+    // Bulk insert: every row is a new patient, ids in the payload are ignored
+    // and assigned from the sequence so Hibernate can batch the INSERTs.
+    public BulkImportResult bulkSave(List<PatientDTO> dtos) {
+        BulkImportResult result = new BulkImportResult();
+        int chunkSize = Math.max(1, bulkChunkSize);
+
+        for (int from = 0; from < dtos.size(); from += chunkSize) {
+            List<PatientDTO> slice = dtos.subList(from, Math.min(from + chunkSize, dtos.size()));
+            List<Patient> chunk = PatientMapper.toEntities(slice);
+            result.add(saveChunk(result.getChunks().size(), chunk));
+        }
+        return result;
+    }
+
+    // NDJSON import: the calling thread parses records one by one while a writer
+    // thread persists full chunks. The queue between them is bounded, so a slow
+    // database blocks the parser instead of letting the upload pile up on the heap.
+    public BulkImportResult importNdjson(InputStream in) throws IOException {
+        int chunkSize = Math.max(1, bulkChunkSize);
+        BlockingQueue<List<Patient>> queue = new ArrayBlockingQueue<>(Math.max(1, bulkQueueCapacity));
+        BulkImportResult result = new BulkImportResult();
+        Future<?> writer = taskExecutor.submit(() -> drainChunks(queue, result));
+
+        String parseError = null;
+        List<Patient> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<PatientDTO> records = objectMapper.readerFor(PatientDTO.class).readValues(in)) {
+            while (records.hasNextValue()) {
+                chunk.add(PatientMapper.toEntity(records.nextValue()));
+                if (chunk.size() == chunkSize) {
+                    enqueue(queue, chunk, writer);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Rows before the broken record are kept, the rest of the upload is skipped
+            parseError = "Malformed NDJSON: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        } finally {
+            if (!chunk.isEmpty()) {
+                enqueue(queue, chunk, writer);
+            }
+            enqueue(queue, END_OF_STREAM, writer);
+        }
+
+        awaitWriter(writer);
+        if (parseError != null) {
+            result.add(new BulkChunkResult(result.getChunks().size(), 0, 1, parseError));
+        }
+        return result;
+    }
+
+    private void drainChunks(BlockingQueue<List<Patient>> queue, BulkImportResult result) {
+        try {
+            List<Patient> chunk;
+            while ((chunk = queue.take()) != END_OF_STREAM) {
+                result.add(saveChunk(result.getChunks().size(), chunk));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(BlockingQueue<List<Patient>> queue, List<Patient> chunk, Future<?> writer) {
+        try {
+            // Blocks while the writer is behind; gives up if the writer has died
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (writer.isDone()) {
+                    awaitWriter(writer);
+                    throw new IllegalStateException("NDJSON writer stopped before the upload was consumed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.cancel(true);
+            throw new IllegalStateException("NDJSON import interrupted", e);
+        }
+    }
+
+    private void awaitWriter(Future<?> writer) {
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.cancel(true);
+            throw new IllegalStateException("NDJSON import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("NDJSON writer failed", e.getCause());
+        }
+    }
+
+    // Writes one chunk in its own transaction
+    public BulkChunkResult saveChunk(int index, List<Patient> chunk) {
+        chunk.forEach(this::clearId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> patientRepo.saveAllAndFlush(chunk));
+            chunk.forEach(this::indexSaved);
+            return new BulkChunkResult(index, chunk.size(), 0, null);
+        } catch (RuntimeException e) {
+            // One bad row rolls back the whole batch, retry row by row to keep the good ones
+            return saveRowByRow(index, chunk);
+        }
+    }
+
+    private BulkChunkResult saveRowByRow(int index, List<Patient> chunk) {
+        List<RuntimeException> errors = saveEach(chunk, true);
+        int failed = 0;
+        String error = null;
+        for (RuntimeException rowError : errors) {
+            if (rowError != null) {
+                failed++;
+                error = error == null ? NestedExceptionUtils.getMostSpecificCause(rowError).getMessage() : error;
+            }
+        }
+        return new BulkChunkResult(index, chunk.size() - failed, failed, error);
+    }
+
+    // One transaction per row; null for a saved row (which then carries its id), otherwise
+    // the row's exception. insertOnly drops incoming ids, as bulk imports always insert.
+    private List<RuntimeException> saveEach(List<Patient> rows, boolean insertOnly) {
+        List<RuntimeException> errors = new ArrayList<>(rows.size());
+        for (Patient patient : rows) {
+            Long requestedId = insertOnly ? null : patient.getId();
+            Long requestedVersion = insertOnly ? null : patient.getVersion();
+            patient.setId(requestedId);
+            patient.setVersion(requestedVersion);
+            try {
+                Patient saved = transactionTemplate.execute(status -> {
+                    adoptCurrentVersions(List.of(patient));
+                    return patientRepo.saveAndFlush(patient);
+                });
+                patient.setId(saved.getId());
+                indexSaved(patient);
+                errors.add(null);
+            } catch (RuntimeException e) {
+                patient.setId(requestedId);
+                patient.setVersion(requestedVersion);
+                errors.add(e);
+            }
+        }
+        return errors;
+    }
+
+    // ---------------------------------------------------------------------
+    // Write-behind (patients.write-behind.enabled): saves are acknowledged with a
+    // token and written later in batches by PatientWriteBehind
+    // ---------------------------------------------------------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriteBehind() {
+        patientWriteBehind.start(this::saveQueued);
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return patientWriteBehind.isEnabled();
+    }
+
+    // version: see post_Patient. A stale one ends the ticket FAILED instead of a 409
+    public WriteTicket enqueueSave(PatientDTO dto, Long version) {
+        // Rejected now rather than acknowledged and then FAILED by the writer
+        checkAge(dto.getAge());
+        return patientWriteBehind.submit(dto, version);
+    }
+
+    public WriteTicket getWriteStatus(String token) {
+        return patientWriteBehind.status(token);
+    }
+
+    // Same batch-then-row-by-row strategy as saveChunk, reported per row; saved rows
+    // get the same cache invalidation as a synchronous save
+    private List<RuntimeException> saveQueued(List<Patient> batch) {
+        List<Long> requestedIds = batch.stream().map(Patient::getId).toList();
+        List<Long> requestedVersions = batch.stream().map(Patient::getVersion).toList();
+        List<RuntimeException> errors;
+        try {
+            // Rows with an id are merged, which returns new instances: copy the ids back
+            List<Patient> saved = transactionTemplate.execute(status -> {
+                adoptCurrentVersions(batch);
+                return patientRepo.saveAllAndFlush(batch);
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(saved.get(i).getId());
+            }
+            batch.forEach(this::indexSaved);
+            errors = new ArrayList<>(Collections.nCopies(batch.size(), (RuntimeException) null));
+        } catch (RuntimeException e) {
+            // Undo ids (and versions) assigned by the rolled-back batch before retrying row by row
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(requestedIds.get(i));
+                batch.get(i).setVersion(requestedVersions.get(i));
+            }
+            if (PatientWriteBehind.isTransient(e)) {
+                // Nothing was written: the writer retries the whole batch later
+                throw e;
+            }
+            errors = saveEach(batch, false);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors.get(i) == null) {
+                patientCache.evict(batch.get(i).getId());
+            }
+        }
+        return errors;
+    }
+
+    // Writes that carry an id but no version keep their last-writer-wins meaning: they take
+    // the row's current version (one query for all of them), and an id with no row is dropped
+    // so the patient is inserted under a new id, as a merge of an unknown id did before.
+    // Without this Spring Data would persist them as new entities and fail on the id.
+    // Callers run it in the read-write transaction of the save: a lagging replica would make
+    // a just-inserted row look missing (a duplicate insert) or a version stale (a false 409).
+    private void adoptCurrentVersions(List<Patient> patients) {
+        List<Long> ids = patients.stream()
+                .filter(p -> p != null && p.getId() != null && p.getVersion() == null)
+                .map(Patient::getId)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            for (Object[] row : patientRepo.findVersionsByIdIn(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size())))) {
+                versions.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        for (Patient patient : patients) {
+            if (patient != null && patient.getId() != null && patient.getVersion() == null) {
+                Long version = versions.get(patient.getId());
+                if (version == null) {
+                    patient.setId(null);
+                } else {
+                    patient.setVersion(version);
+                }
+            }
+        }
+    }
+
+    // The age column is an INTEGER: a non-numeric age is an IllegalArgumentException (400)
+    // before anything is written, not a conversion error inside the flush
+    private static void checkAge(String age) {
+        AGE_CONVERTER.convertToDatabaseColumn(age);
+    }
+
+    private void indexSaved(Patient patient) {
+        patientIdFilter.add(patient.getId());
+        patientNameIndex.put(patient.getId(), patient.getName());
+    }
+
+    // Also clears the version: a persist that was rolled back leaves one behind
+    private void clearId(Patient patient) {
+        if (patient != null) {
+            patient.setId(null);
+            patient.setVersion(null);
+        }
+    }
+
+    // Streams the whole table row by row; heap use does not depend on the table size
+    @Transactional(readOnly = true)
+    public void exportPatients(OutputStream out, ExportFormat format) throws IOException {
+        try (Stream<PatientDTO> rows = patientRepo.streamAllAsDto()) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(rows, out);
+            } else {
+                writeNdjson(rows, out);
+            }
+        }
+    }
+
+    private void writeNdjson(Stream<PatientDTO> rows, OutputStream out) throws IOException {
+        // One generator for all rows: Jackson puts the root value separator (a space by
+        // default) between consecutive values, so it is the line break
+        ObjectWriter writer = objectMapper.writerFor(PatientDTO.class).withRootValueSeparator("\n");
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        boolean any = false;
+        for (PatientDTO dto : (Iterable<PatientDTO>) rows::iterator) {
+            writer.writeValue(generator, dto);
+            any = true;
+        }
+        if (any) {
+            // Terminates the last line too
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private void writeCsv(Stream<PatientDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,name,age\n");
+
+        for (PatientDTO dto : (Iterable<PatientDTO>) rows::iterator) {
+            writer.write(csvField(dto.getId() == null ? null : dto.getId().toString()));
+            writer.write(',');
+            writer.write(csvField(dto.getName()));
+            writer.write(',');
+            writer.write(csvField(dto.getAge()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Keyset pagination: the cursor carries the last id of the previous page
+    @Transactional(readOnly = true)
+    public PatientPage listPatients(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        long lastSeenId = cursor == null || cursor.isBlank() ? 0L : decodeCursor(cursor);
+
+        // One extra row tells us whether another page exists
+        List<PatientDTO> rows = patientRepo.findPageAfter(lastSeenId, Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new PatientPage(rows, null);
+        }
+
+        List<PatientDTO> items = rows.subList(0, pageSize);
+        return new PatientPage(new ArrayList<>(items), encodeCursor(items.get(pageSize - 1).getId()));
+    }
+
+    private static String encodeCursor(long lastSeenId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastSeenId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    // Patients aged minAge..maxAge (inclusive), youngest first; the cursor carries the last (age, id)
+    @Transactional(readOnly = true)
+    public PatientPage findByAgeRange(int minAge, int maxAge, String cursor, int size) {
+        if (minAge < 0 || maxAge < minAge) {
+            throw new IllegalArgumentException("Invalid age range: " + minAge + "-" + maxAge);
+        }
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        long[] lastSeen = cursor == null || cursor.isBlank() ? new long[]{minAge, 0L} : decodeAgeCursor(cursor);
+
+        List<PatientDTO> rows = patientRepo.findAgePageAfter(String.valueOf(minAge), String.valueOf(maxAge),
+                String.valueOf(lastSeen[0]), lastSeen[1], Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new PatientPage(rows, null);
+        }
+
+        List<PatientDTO> items = rows.subList(0, pageSize);
+        PatientDTO last = items.get(pageSize - 1);
+        return new PatientPage(new ArrayList<>(items), encodeAgeCursor(last.getAge(), last.getId()));
+    }
+
+    private static String encodeAgeCursor(String lastAge, long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((lastAge + ":" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeAgeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected age:id");
+            }
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    // Exact, case-insensitive name lookup through the in-memory index
+    @Transactional(readOnly = true)
+    public List<PatientDTO> findByName(String name) {
+        if (!patientNameIndex.isReady()) {
+            return patientRepo.findDtosByNameIgnoreCase(name);
+        }
+
+        Set<Long> ids = patientNameIndex.findIds(name);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Re-check the name: the index only provides candidates
+        String key = PatientNameIndex.fold(name);
+        return findDtosByIds(ids).stream()
+                .filter(dto -> key.equals(PatientNameIndex.fold(dto.getName())))
+                .sorted(Comparator.comparing(PatientDTO::getId))
+                .toList();
+    }
+
+    // Many ids in one call: cache hits first, the rest through chunked IN queries
+    // (on the primary when one of them was just written).
+    // One entry per requested id, in request order (duplicates repeated), found=false when missing
+    @Transactional(readOnly = true)
+    public List<BatchGetItem> batchGet(List<Long> ids) {
+        if (ids.size() > maxBatchGetIds) {
+            throw new IllegalArgumentException("At most " + maxBatchGetIds + " ids per batch-get, got " + ids.size());
+        }
+
+        Map<Long, PatientDTO> rows = new HashMap<>();
+        Set<Long> toLoad = new LinkedHashSet<>();
+        for (Long id : ids) {
+            // Ids the filter has never seen do not exist
+            if (id == null || rows.containsKey(id) || !patientIdFilter.mightContain(id)) {
+                continue;
+            }
+            Patient cached = patientCache.getIfPresent(id);
+            if (cached != null) {
+                rows.put(id, PatientMapper.toDTO(cached));
+            } else {
+                toLoad.add(id);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            for (PatientDTO dto : readFresh(toLoad, () -> findDtosByIds(toLoad))) {
+                rows.put(dto.getId(), dto);
+            }
+        }
+
+        List<BatchGetItem> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PatientDTO dto = id == null ? null : rows.get(id);
+            result.add(new BatchGetItem(id, dto != null, dto));
+        }
+        return result;
+    }
+
+    // IN lists are split so large id sets stay below database limits (Oracle: 1000)
+    private List<PatientDTO> findDtosByIds(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<PatientDTO> result = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            result.addAll(patientRepo.findDtosByIdIn(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size()))));
+        }
+        return result;
+    }
+
+    // Type-ahead search: prefix matches first, then (optionally) names within a few typos
+    @Transactional(readOnly = true)
+    public List<PatientDTO> search(String query, int limit, boolean fuzzy) {
+        int k = Math.max(1, Math.min(limit, maxSearchResults));
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+
+        // Ask for a few spare candidates in case some were deleted or renamed meanwhile
+        List<Long> ranked = patientNameIndex.search(query, k * 2, fuzzy);
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, PatientDTO> rows = new HashMap<>();
+        for (PatientDTO dto : findDtosByIds(ranked)) {
+            rows.put(dto.getId(), dto);
+        }
+
+        List<PatientDTO> result = new ArrayList<>(k);
+        for (Long id : ranked) {
+            PatientDTO dto = rows.get(id);
+            if (dto != null && PatientNameIndex.matches(dto.getName(), query, fuzzy)) {
+                result.add(dto);
+                if (result.size() == k) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
 }
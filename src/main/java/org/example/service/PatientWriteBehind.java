@@ -0,0 +1,273 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.example.dto.PatientDTO;
+import org.example.dto.WriteTicket;
+import org.example.entity.Patient;
+import org.example.mapper.PatientMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Optional write-behind for single saves (patients.write-behind.enabled).
+ * A save is journaled, acknowledged with a token and later written by one background
+ * thread in batches. Delivery is at-least-once: a crash between the database commit and
+ * the DONE line replays that save on the next start.
+ * Saves that fail for a transient reason (database unreachable, timeout, deadlock victim)
+ * are retried with exponential backoff; only a data error settles a save as FAILED.
+ */
+@Component
+public class PatientWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientWriteBehind.class);
+
+    // Queued by stop(): the writer finishes what is ahead of it, then exits
+    private static final PatientWriteJournal.Entry STOP = new PatientWriteJournal.Entry(null, null, null, null, null, null);
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+    private final Duration lingerTime;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final PatientWriteJournal journal;
+    private final BlockingQueue<PatientWriteJournal.Entry> queue = new LinkedBlockingQueue<>();
+    // Finished tickets are kept for a while so clients can poll them
+    private final Cache<String, WriteTicket> tickets;
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    public PatientWriteBehind(@Value("${patients.write-behind.enabled:false}") boolean enabled,
+                              @Value("${patients.write-behind.journal:${java.io.tmpdir}/patients-write-behind.ndjson}") Path journalFile,
+                              @Value("${patients.write-behind.fsync:true}") boolean fsync,
+                              @Value("${patients.write-behind.batch-size:100}") int batchSize,
+                              @Value("${patients.write-behind.linger:5ms}") Duration lingerTime,
+                              @Value("${patients.write-behind.max-pending:100000}") int maxPending,
+                              @Value("${patients.write-behind.ticket-ttl:1h}") Duration ticketTtl,
+                              @Value("${patients.write-behind.retry-backoff:100ms}") Duration retryBackoff,
+                              @Value("${patients.write-behind.max-retry-backoff:30s}") Duration maxRetryBackoff,
+                              ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerTime = lingerTime;
+        this.maxPending = maxPending;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff.compareTo(retryBackoff) < 0 ? retryBackoff : maxRetryBackoff;
+        this.journal = new PatientWriteJournal(journalFile, fsync, objectMapper);
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxPending, 1) * 2L)
+                .expireAfterWrite(ticketTtl)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replays what the journal still holds and starts the writer thread.
+     * {@code persist} writes one batch and returns, per row, null on success (the entity then
+     * carries its id) or the row's exception. If it throws instead, nothing it wrote is kept
+     * and the whole batch is retried.
+     */
+    public synchronized void start(Function<List<Patient>, List<RuntimeException>> persist) {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            List<PatientWriteJournal.Entry> replay = journal.open();
+            for (PatientWriteJournal.Entry entry : replay) {
+                tickets.put(entry.token(), pending(entry.token()));
+                queue.add(entry);
+            }
+            if (!replay.isEmpty()) {
+                log.info("Replaying {} unsettled write-behind saves", replay.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-behind journal", e);
+        }
+
+        running = true;
+        writer = Thread.ofPlatform().name("patients-write-behind").daemon(true).start(() -> drain(persist));
+    }
+
+    public WriteTicket submit(PatientDTO dto) {
+        return submit(dto, null);
+    }
+
+    // With a version the save is only applied while the patient is still at that version;
+    // otherwise it ends FAILED with the optimistic-locking error
+    public WriteTicket submit(PatientDTO dto, Long version) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind is not running");
+        }
+        if (journal.getPending() >= maxPending) {
+            throw new IllegalStateException("Write-behind backlog is full (" + maxPending + " pending saves)");
+        }
+        String token = UUID.randomUUID().toString();
+        WriteTicket ticket = pending(token);
+        tickets.put(token, ticket);
+        // Durable before it is acknowledged
+        journal.save(token, dto, version);
+        queue.add(new PatientWriteJournal.Entry(PatientWriteJournal.Type.SAVE, token, dto, version, null, null));
+        return ticket;
+    }
+
+    // null when the token is unknown or expired
+    public WriteTicket status(String token) {
+        return token == null ? null : tickets.getIfPresent(token);
+    }
+
+    public int getPending() {
+        return journal.getPending();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            queue.add(STOP);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            if (thread.isAlive()) {
+                // Still busy: whatever it has not settled stays in the journal for the next start
+                thread.interrupt();
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            }
+        }
+        journal.close();
+    }
+
+    private void drain(Function<List<Patient>, List<RuntimeException>> persist) {
+        // Starts with the saves of the previous batch that are to be retried, if any
+        List<PatientWriteJournal.Entry> batch = new ArrayList<>(batchSize);
+        Duration backoff = Duration.ZERO;
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                if (!backoff.isZero()) {
+                    TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+                }
+                if (batch.isEmpty()) {
+                    batch.add(queue.take());
+                    // Give concurrent saves a moment to join the same batch
+                    if (batchSize > 1 && !lingerTime.isZero()) {
+                        TimeUnit.NANOSECONDS.sleep(lingerTime.toNanos());
+                    }
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                // Unsettled saves stay in the journal and are replayed on the next start
+                Thread.currentThread().interrupt();
+                return;
+            }
+            stopping = batch.remove(STOP);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            List<PatientWriteJournal.Entry> retry;
+            try {
+                retry = write(batch, persist);
+            } catch (RuntimeException e) {
+                // Nothing of it is settled: left PENDING, the saves would hold max-pending forever
+                if (!isTransient(e)) {
+                    log.error("Write-behind batch of {} failed", batch.size(), e);
+                }
+                retry = new ArrayList<>(batch);
+            }
+            if (retry.isEmpty()) {
+                backoff = Duration.ZERO;
+            } else {
+                backoff = backoff.isZero() ? retryBackoff : min(backoff.multipliedBy(2), maxRetryBackoff);
+                log.warn("Retrying {} write-behind saves in {} ms", retry.size(), backoff.toMillis());
+            }
+            batch.clear();
+            batch.addAll(retry);
+        }
+    }
+
+    // Settles the saves that were written or failed on their data; returns the rest
+    private List<PatientWriteJournal.Entry> write(List<PatientWriteJournal.Entry> batch,
+                                                  Function<List<Patient>, List<RuntimeException>> persist) {
+        List<Patient> patients = new ArrayList<>(batch.size());
+        for (PatientWriteJournal.Entry entry : batch) {
+            Patient patient = PatientMapper.toEntity(entry.patient());
+            patient.setVersion(entry.version());
+            patients.add(patient);
+        }
+
+        List<RuntimeException> errors = persist.apply(patients);
+
+        List<PatientWriteJournal.Entry> retry = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String token = batch.get(i).token();
+            RuntimeException error = errors.get(i);
+            if (error == null) {
+                Long id = patients.get(i).getId();
+                journal.done(token, id);
+                tickets.put(token, new WriteTicket(token, WriteTicket.Status.SAVED, id, null));
+            } else if (isTransient(error)) {
+                retry.add(batch.get(i));
+            } else {
+                String message = NestedExceptionUtils.getMostSpecificCause(error).getMessage();
+                journal.failed(token, message);
+                tickets.put(token, new WriteTicket(token, WriteTicket.Status.FAILED, null, message));
+            }
+        }
+        return retry;
+    }
+
+    // Worth retrying: the database was unreachable, timed out or rolled the transaction back
+    // as a deadlock victim. Constraint violations, bad values and version conflicts are not
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException) {
+                return false;
+            }
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static WriteTicket pending(String token) {
+        return new WriteTicket(token, WriteTicket.Status.PENDING, null, null);
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PatientDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only NDJSON journal behind the write-behind queue.
+ * A SAVE line is written (and forced to disk) before a save is acknowledged; a DONE or
+ * FAILED line settles it. Whatever is still unsettled at startup is handed back by
+ * {@link #open()} for replay. The file is emptied whenever nothing is pending, so it only
+ * ever holds the current backlog.
+ */
+public class PatientWriteJournal implements AutoCloseable {
+
+    public enum Type { SAVE, DONE, FAILED }
+
+    // version: the patient version a /post_patient body expects (optimistic locking), if any
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(Type type, String token, PatientDTO patient, Long version, Long id, String error) {
+    }
+
+    private final Path file;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+    private int pending;
+
+    public PatientWriteJournal(Path file, boolean fsync, ObjectMapper objectMapper) {
+        this.file = file;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+    }
+
+    // Reads what a previous run left behind, rewrites the file with just that and opens it for appending
+    public synchronized List<Entry> open() throws IOException {
+        List<Entry> unsettled = readUnsettled();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : unsettled) {
+                write(out, entry);
+            }
+            out.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pending = unsettled.size();
+        return unsettled;
+    }
+
+    public synchronized void save(String token, PatientDTO patient, Long version) {
+        append(new Entry(Type.SAVE, token, patient, version, null, null));
+        pending++;
+    }
+
+    public synchronized void done(String token, Long id) {
+        settle(new Entry(Type.DONE, token, null, null, id, null));
+    }
+
+    public synchronized void failed(String token, String error) {
+        settle(new Entry(Type.FAILED, token, null, null, null, error));
+    }
+
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void settle(Entry entry) {
+        append(entry);
+        pending = Math.max(0, pending - 1);
+        if (pending == 0) {
+            // Backlog drained: nothing in the file is needed any more
+            try {
+                channel.truncate(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot truncate write-behind journal " + file, e);
+            }
+        }
+    }
+
+    private void append(Entry entry) {
+        if (channel == null) {
+            throw new IllegalStateException("Write-behind journal is not open");
+        }
+        try {
+            write(channel, entry);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to write-behind journal " + file, e);
+        }
+    }
+
+    private void write(FileChannel target, Entry entry) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (line.hasRemaining()) {
+            target.write(line);
+        }
+    }
+
+    // SAVE entries without a matching DONE/FAILED, in journal order
+    private List<Entry> readUnsettled() throws IOException {
+        Map<String, Entry> saves = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (JsonProcessingException e) {
+                    // Torn last line from a crash mid-append: that save was never acknowledged
+                    continue;
+                }
+                if (entry.type() == Type.SAVE) {
+                    saves.put(entry.token(), entry);
+                } else {
+                    saves.remove(entry.token());
+                }
+            }
+        }
+        return new ArrayList<>(saves.values());
+    }
+}
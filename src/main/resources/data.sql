@@ -1,3 +1,3 @@
-INSERT INTO patients ( name, age) VALUES ( 'Ali', '22');
-INSERT INTO patients ( name, age) VALUES ( 'Assa', '30');
-INSERT INTO patients ( name, age) VALUES ('Md', '40');
+MERGE INTO patients (id, name, age, version) KEY (id) VALUES (1, 'Ali', 22, 0);
+MERGE INTO patients (id, name, age, version) KEY (id) VALUES (2, 'Assa', 30, 0);
+MERGE INTO patients (id, name, age, version) KEY (id) VALUES (3, 'Md', 40, 0);
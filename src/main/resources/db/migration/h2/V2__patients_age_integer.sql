@@ -0,0 +1,7 @@
+-- patients.age: VARCHAR → INTEGER, plus the (age, id) index for age-range pages.
+-- For H2 file/server databases created before the change; in-memory ones are built by Hibernate.
+-- Fails on a non-numeric age instead of dropping it. Find those first:
+--   SELECT id, age FROM patients WHERE NOT REGEXP_LIKE(TRIM(age), '^-?[0-9]+$');
+UPDATE patients SET age = NULL WHERE TRIM(age) = '';
+ALTER TABLE patients ALTER COLUMN age SET DATA TYPE INTEGER;
+CREATE INDEX IF NOT EXISTS idx_patients_age ON patients (age, id);
@@ -0,0 +1,6 @@
+-- patients.version: optimistic-locking counter (@Version), 0 for rows written before it.
+-- For H2 file/server databases created before the change; in-memory ones are built by Hibernate.
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+UPDATE patients SET version = 0 WHERE version IS NULL;
+ALTER TABLE patients ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE patients ALTER COLUMN version SET NOT NULL;
@@ -0,0 +1,8 @@
+-- patients.id: assigned by Hibernate from patients_seq instead of an IDENTITY column.
+-- Hibernate's pooled optimizer hands out the 49 ids below each value it fetches, so the
+-- sequence starts 50 above the highest id, and never below 1000 (Patient.FIRST_GENERATED_ID).
+-- For H2 file/server databases created before the change; in-memory ones are built by Hibernate.
+CREATE SEQUENCE IF NOT EXISTS patients_seq START WITH 1000 INCREMENT BY 50;
+ALTER SEQUENCE patients_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50, 1000) FROM patients)
+    INCREMENT BY 50;
+ALTER TABLE patients ALTER COLUMN id DROP IDENTITY;
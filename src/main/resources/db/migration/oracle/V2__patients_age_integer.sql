@@ -0,0 +1,10 @@
+-- patients.age: VARCHAR2 → NUMBER(10), plus the (age, id) index for age-range pages.
+-- Oracle cannot change the type of a filled column: copy into a new column and swap.
+-- Fails (ORA-01722) on a non-numeric age instead of dropping it. Find those first:
+--   SELECT id, age FROM patients WHERE NOT REGEXP_LIKE(TRIM(age), '^-?[0-9]+$');
+ALTER TABLE patients ADD (age_num NUMBER(10));
+UPDATE patients SET age_num = TO_NUMBER(TRIM(age)) WHERE TRIM(age) IS NOT NULL;
+COMMIT;
+ALTER TABLE patients DROP COLUMN age;
+ALTER TABLE patients RENAME COLUMN age_num TO age;
+CREATE INDEX idx_patients_age ON patients (age, id);
@@ -0,0 +1,3 @@
+-- patients.version: optimistic-locking counter (@Version), 0 for rows written before it.
+-- A NOT NULL column with a default is filled for existing rows without rewriting them.
+ALTER TABLE patients ADD (version NUMBER(19) DEFAULT 0 NOT NULL);
@@ -0,0 +1,24 @@
+-- patients.id: assigned by Hibernate from patients_seq instead of an IDENTITY column.
+-- Hibernate's pooled optimizer hands out the 49 ids below each value it fetches, so the
+-- sequence starts 50 above the highest id, and never below 1000 (Patient.FIRST_GENERATED_ID).
+-- START WITH takes no subquery: the statements are built in a block. A patients_seq that
+-- Hibernate (ddl-auto) already created is replaced.
+DECLARE
+    start_with NUMBER;
+    found      NUMBER;
+BEGIN
+    SELECT GREATEST(NVL(MAX(id), 0) + 50, 1000) INTO start_with FROM patients;
+
+    SELECT COUNT(*) INTO found FROM user_sequences WHERE sequence_name = 'PATIENTS_SEQ';
+    IF found > 0 THEN
+        EXECUTE IMMEDIATE 'DROP SEQUENCE patients_seq';
+    END IF;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE patients_seq START WITH ' || start_with || ' INCREMENT BY 50';
+
+    SELECT COUNT(*) INTO found FROM user_tab_identity_cols
+     WHERE table_name = 'PATIENTS' AND column_name = 'ID';
+    IF found > 0 THEN
+        EXECUTE IMMEDIATE 'ALTER TABLE patients MODIFY id DROP IDENTITY';
+    END IF;
+END;
+/
@@ -0,0 +1,7 @@
+-- Embedded (in-memory) databases only: runs after Hibernate's ddl-auto
+-- (spring.jpa.defer-datasource-initialization). Existing databases are upgraded with the
+-- scripts in db/migration instead.
+-- patients.version (@Version): Hibernate creates it nullable without a default; native
+-- inserts that leave it out (the upsert's MERGE) must still start at 0.
+ALTER TABLE patients ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE patients ALTER COLUMN version SET NOT NULL;
@@ -1,16 +1,30 @@
 package org.example.integrationTest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.config.WireFormatConfig;
 import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
 import org.example.repo.PatientRepo;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +49,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @SpringBootTest
 @AutoConfigureMockMvc
+// Real metrics exporters (Prometheus); both classes keep the same annotations to share one context
+@AutoConfigureObservability(tracing = false)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class PatientControllerIntegrationTest {
 
@@ -47,6 +63,13 @@ public class PatientControllerIntegrationTest {
     @Autowired
     private PatientRepo patientRepo; // Real repository connected to H2 DB
 
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource; // Read-only pool behind the routing DataSource
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory; // Hibernate statistics (second-level cache)
+
 
     @BeforeEach
     void setup() {
@@ -147,4 +170,808 @@ public class PatientControllerIntegrationTest {
 
         System.out.println("✓ DTO saved & returned successfully");
     }
+
+    // ---------------------------------------------------------------------
+    // TEST 5 — POST /Patient/bulk (chunked batch insert)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(5)
+    @DisplayName("Integration: POST /Patient/bulk inserts rows and reports failures per chunk")
+    void testBulkIntegration() throws Exception {
+
+        long before = patientRepo.count();
+
+        // Third row is too long for the name column and must be reported as failed
+        List<PatientDTO> dtos = List.of(
+                PatientDTO.builder().name("Bulk-1").age("50").build(),
+                PatientDTO.builder().name("Bulk-2").age("51").build(),
+                PatientDTO.builder().name("X".repeat(300)).age("52").build()
+        );
+
+        mockMvc.perform(post("/Patient/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.chunks[0].failed").value(1))
+                .andExpect(jsonPath("$.chunks[0].error").exists());
+
+        assertEquals(before + 2, patientRepo.count());
+
+        System.out.println("✓ Bulk insert stored the valid rows and reported the bad one");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 6 — POST /Patient/bulk as NDJSON (streaming import)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(6)
+    @DisplayName("Integration: NDJSON upload is streamed into the DB line by line")
+    void testBulkNdjsonIntegration() throws Exception {
+
+        long before = patientRepo.count();
+
+        // Last line is broken: the two rows before it must still be stored
+        String ndjson = """
+                {"name": "Stream-1", "age": "60"}
+                {"name": "Stream-2", "age": "61"}
+                {"name": "Stream-3", "age":
+                """;
+
+        mockMvc.perform(post("/Patient/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.chunks[1].error").value(org.hamcrest.Matchers.startsWith("Malformed NDJSON")));
+
+        assertEquals(before + 2, patientRepo.count());
+
+        System.out.println("✓ NDJSON import stored the rows before the malformed line");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 7 — GET /Patient/export (streamed NDJSON and CSV)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(7)
+    @DisplayName("Integration: GET /Patient/export streams every row as NDJSON or CSV")
+    void testExportIntegration() throws Exception {
+
+        long rows = patientRepo.count();
+
+        MvcResult ndjson = mockMvc.perform(get("/Patient/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String ndjsonBody = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = ndjsonBody.split("\n");
+        assertEquals(rows, lines.length);
+        assertEquals("Ali", objectMapper.readValue(lines[0], PatientDTO.class).getName());
+        assertTrue(ndjsonBody.endsWith("}\n"));
+        // Every line is exactly one object: no separator left over from the previous one
+        for (String line : lines) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"), "not a JSON line: '" + line + "'");
+            assertNotNull(objectMapper.readValue(line, PatientDTO.class).getId());
+        }
+
+        MvcResult csv = mockMvc.perform(get("/Patient/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String csvBody = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(csvBody.startsWith("id,name,age\n1,Ali,22\n"));
+        assertEquals(rows + 1, csvBody.split("\n").length);
+
+        mockMvc.perform(get("/Patient/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("✓ Export streamed " + rows + " rows");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 8 — GET /Patient/list (keyset pagination)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(8)
+    @DisplayName("Integration: GET /Patient/list walks the whole table with cursors")
+    void testListIntegration() throws Exception {
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+
+        do {
+            var request = get("/Patient/list").param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            JsonNode page = objectMapper.readTree(body);
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(patientRepo.count(), ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids, "Pages must come back in id order");
+
+        mockMvc.perform(get("/Patient/list").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("✓ Listed " + ids.size() + " patients page by page");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 9 — Cache is invalidated by /save and exposes metrics
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(9)
+    @DisplayName("Integration: /save refreshes a cached patient and cache metrics are published")
+    void testCacheIntegration() throws Exception {
+
+        // Warm the cache
+        mockMvc.perform(get("/Patient/get_patient").param("id", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.age").value("40"));
+
+        // Update through /save → must not be served stale
+        PatientDTO update = new PatientDTO(3L, "Md", "41");
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/Patient/get_patient").param("id", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.age").value("41"));
+
+        mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "cache:patients"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+
+        // Loads run outside Caffeine but are still counted and timed
+        mockMvc.perform(get("/actuator/metrics/cache.load").param("tag", "cache:patients").param("tag", "result:success"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(org.hamcrest.Matchers.greaterThan(0.0)));
+        mockMvc.perform(get("/actuator/metrics/cache.load.duration").param("tag", "cache:patients"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(org.hamcrest.Matchers.greaterThan(0.0)));
+
+        System.out.println("✓ Cache refreshed after /save and metrics are exposed");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 10 — GET /Patient/by-name (indexed, case-insensitive)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(10)
+    @DisplayName("Integration: GET /Patient/by-name finds patients ignoring case, including new ones")
+    void testByNameIntegration() throws Exception {
+
+        mockMvc.perform(get("/Patient/by-name").param("name", "aLI"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Ali"));
+
+        PatientDTO dto = PatientDTO.builder().name("Yasmin").age("29").build();
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/Patient/by-name").param("name", "YASMIN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Yasmin"));
+
+        mockMvc.perform(get("/Patient/by-name").param("name", "nobody"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        System.out.println("✓ Name index answered exact lookups");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 11 — GET /Patient/search (prefix + fuzzy)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(11)
+    @DisplayName("Integration: GET /Patient/search returns prefix and fuzzy matches")
+    void testSearchIntegration() throws Exception {
+
+        mockMvc.perform(get("/Patient/search").param("q", "as"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Assa"));
+
+        // "Asso" is one substitution away from "Assa"
+        mockMvc.perform(get("/Patient/search").param("q", "asso"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Assa"));
+
+        mockMvc.perform(get("/Patient/search").param("q", "asso").param("fuzzy", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        System.out.println("✓ Search answered prefix and fuzzy queries");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 12 — GET /Patient/get_patient_dto
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(12)
+    @DisplayName("Integration: GET /Patient/get_patient_dto returns the DTO view")
+    void testGetPatientDtoIntegration() throws Exception {
+
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.name").value("Assa"))
+                .andExpect(jsonPath("$.age").value("30"));
+
+        // Unknown id → empty body, same as /get_patient
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "987654"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        System.out.println("✓ DTO read served for id 2");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 13 — Reads use the replica pool, writes the primary pool
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(13)
+    @DisplayName("Integration: read-only queries are routed to the replica pool")
+    void testReadReplicaRouting() throws Exception {
+
+        HikariPoolMXBean replica = replicaDataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+
+        mockMvc.perform(get("/Patient/list").param("size", "2"))
+                .andExpect(status().isOk());
+
+        // The replica pool only starts when the first read-only transaction needs it
+        assertNotNull(replica);
+        assertTrue(replica.getTotalConnections() > 0);
+
+        System.out.println("✓ Replica pool serving reads: " + replica.getTotalConnections() + " connections");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 14 — Pool and repository latency metrics
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(14)
+    @DisplayName("Integration: Hikari and PatientRepo latency histograms are published")
+    void testDataPathMetrics() throws Exception {
+
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "1"))
+                .andExpect(status().isOk());
+
+        // Time to get a connection, per pool
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.acquire").param("tag", "pool:replica"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+
+        // Latency per repository method (p50 / p99 / p999 are checked in the Prometheus scrape)
+        mockMvc.perform(get("/actuator/metrics/spring.data.repository.invocations")
+                        .param("tag", "method:findDtoById"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+
+        System.out.println("✓ Pool and repository latency metrics exposed");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 15 — Prometheus scrape endpoint
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(15)
+    @DisplayName("Integration: /actuator/prometheus exposes endpoint, error and JVM metrics")
+    void testPrometheusEndpoint() throws Exception {
+
+        mockMvc.perform(get("/Patient/get_patient").param("id", "1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/Patient/list").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Per-endpoint histogram buckets and percentiles
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{application=\"patients\""));
+        assertTrue(scrape.contains("uri=\"/Patient/get_patient\""));
+        assertTrue(scrape.contains("quantile=\"0.99\""));
+        // Repository and pool percentiles from the earlier requests
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds{"));
+        assertTrue(scrape.contains("quantile=\"0.999\""));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket"));
+        // Errors by status
+        assertTrue(scrape.contains("status=\"400\""));
+        // In-flight requests
+        assertTrue(scrape.contains("http_server_requests_active_seconds"));
+        // JVM, GC and allocation
+        assertTrue(scrape.contains("jvm_gc_memory_allocated_bytes_total"));
+        assertTrue(scrape.contains("jvm_memory_used_bytes"));
+
+        System.out.println("✓ Prometheus scrape contains HTTP, error and JVM metrics");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 16 — Second-level and query cache
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(16)
+    @DisplayName("Integration: repeated reads are served from the second-level and query cache")
+    void testSecondLevelCache() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Each repository call is its own transaction and session: only the second-level
+        // cache can serve the second one
+        patientRepo.findById(2L);
+        long entityHits = statistics.getSecondLevelCacheHitCount();
+        Patient patient = patientRepo.findById(2L).orElseThrow();
+        assertEquals("Assa", patient.getName());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > entityHits);
+
+        patientRepo.findDtoById(2L);
+        long queryHits = statistics.getQueryCacheHitCount();
+        assertEquals("30", patientRepo.findDtoById(2L).orElseThrow().getAge());
+        assertTrue(statistics.getQueryCacheHitCount() > queryHits);
+
+        // Hit / miss per region for sizing
+        mockMvc.perform(get("/actuator/metrics/hibernate.second.level.cache.requests")
+                        .param("tag", "region:org.example.entity.Patient")
+                        .param("tag", "result:hit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+
+        System.out.println("✓ Second-level cache hits: " + statistics.getSecondLevelCacheHitCount()
+                + ", query cache hits: " + statistics.getQueryCacheHitCount());
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 17 — GET /Patient/by-age
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(17)
+    @DisplayName("Integration: GET /Patient/by-age pages through an age range")
+    void testByAge() throws Exception {
+
+        List<String> ages = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult result = mockMvc.perform(get("/Patient/by-age")
+                            .param("min", "25")
+                            .param("max", "35")
+                            .param("size", "1")
+                            .param("cursor", cursor == null ? "" : cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            page.get("items").forEach(item -> {
+                ages.add(item.get("age").asText());
+                names.add(item.get("name").asText());
+            });
+            cursor = page.path("nextCursor").isNull() ? null : page.path("nextCursor").asText(null);
+        } while (cursor != null);
+
+        // Ages stay strings in JSON, come back in numeric order and within the range
+        assertTrue(names.contains("Assa"));
+        for (int i = 0; i < ages.size(); i++) {
+            int age = Integer.parseInt(ages.get(i));
+            assertTrue(age >= 25 && age <= 35, "age " + age);
+            assertTrue(i == 0 || Integer.parseInt(ages.get(i - 1)) <= age);
+        }
+
+        mockMvc.perform(get("/Patient/by-age").param("min", "80").param("max", "60"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("✓ Ages 25-35: " + names + " " + ages);
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 18 — PUT /Patient/{id} (MERGE upsert + Idempotency-Key)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(18)
+    @DisplayName("Integration: PUT /Patient/{id} upserts in one statement and honours Idempotency-Key")
+    void testUpsert() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long before = patientRepo.count();
+
+        // Insert: one MERGE, no SELECT first
+        long statements = statistics.getPrepareStatementCount();
+        mockMvc.perform(put("/Patient/901")
+                        .header("Idempotency-Key", "upsert-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Upserted\",\"age\":\"44\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(901))
+                .andExpect(jsonPath("$.name").value("Upserted"));
+        assertEquals(1, statistics.getPrepareStatementCount() - statements);
+
+        // Retry of the same request: same answer, nothing written
+        statements = statistics.getPrepareStatementCount();
+        mockMvc.perform(put("/Patient/901")
+                        .header("Idempotency-Key", "upsert-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Upserted\",\"age\":\"44\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Upserted"));
+        assertEquals(0, statistics.getPrepareStatementCount() - statements);
+        assertEquals(before + 1, patientRepo.count());
+
+        // Same key, different body
+        mockMvc.perform(put("/Patient/901")
+                        .header("Idempotency-Key", "upsert-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Other\",\"age\":\"44\"}"))
+                .andExpect(status().isUnprocessableEntity());
+
+        // Update through a new key: reads (cache, second-level cache) see the new row
+        mockMvc.perform(get("/Patient/get_patient").param("id", "901"))
+                .andExpect(jsonPath("$.full-name").value("Upserted"));
+        mockMvc.perform(put("/Patient/901")
+                        .header("Idempotency-Key", "upsert-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\",\"age\":\"45\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/Patient/get_patient").param("id", "901"))
+                .andExpect(jsonPath("$.full-name").value("Renamed"))
+                .andExpect(jsonPath("$.age").value("45"));
+        assertEquals("Renamed", patientRepo.findById(901L).orElseThrow().getName());
+        mockMvc.perform(get("/Patient/by-name").param("name", "renamed"))
+                .andExpect(jsonPath("$[0].id").value(901));
+
+        // Body id must match the path, age must be numeric
+        mockMvc.perform(put("/Patient/901")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":5,\"name\":\"X\",\"age\":\"1\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/Patient/901")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"X\",\"age\":\"old\"}"))
+                .andExpect(status().isBadRequest());
+
+        // Ids below 1 would sit in front of every id-keyed page (/list, /by-age, bulk delete)
+        for (String id : new String[]{"0", "-5"}) {
+            mockMvc.perform(put("/Patient/" + id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"Hidden\",\"age\":\"30\"}"))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(put("/Patient/" + id)
+                            .header("If-Match", "\"0\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"Hidden\",\"age\":\"30\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+        assertTrue(patientRepo.findById(0L).isEmpty());
+        assertTrue(patientRepo.findById(-5L).isEmpty());
+
+        // Ids from 1000 up belong to the sequence: PUT may replace such a row, never create it
+        mockMvc.perform(put("/Patient/5000000")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Squatter\",\"age\":\"30\"}"))
+                .andExpect(status().isBadRequest());
+        assertTrue(patientRepo.findById(5000000L).isEmpty());
+        Long generated = patientRepo.save(new Patient(null, "Generated", "30")).getId();
+        assertTrue(generated >= Patient.FIRST_GENERATED_ID);
+        mockMvc.perform(put("/Patient/" + generated)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Regenerated\",\"age\":\"31\"}"))
+                .andExpect(status().isOk());
+        assertEquals("Regenerated", patientRepo.findById(generated).orElseThrow().getName());
+
+        System.out.println("✓ Upsert: one statement per write, retries replayed");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 19 — POST /Patient/bulk-delete (ids and age range)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(19)
+    @DisplayName("Integration: bulk delete by ids and by age range, cached entries evicted")
+    void testBulkDelete() throws Exception {
+
+        for (long id = 911; id <= 914; id++) {
+            mockMvc.perform(put("/Patient/" + id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"Retired-" + id + "\",\"age\":\"" + (id < 913 ? 150 : 160) + "\"}"))
+                    .andExpect(status().isOk());
+        }
+        // Cache one of them before it is purged
+        mockMvc.perform(get("/Patient/get_patient").param("id", "911"))
+                .andExpect(jsonPath("$.full-name").value("Retired-911"));
+
+        // By id: one chunk, the unknown id is not counted
+        mockMvc.perform(post("/Patient/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[911, 912, 919]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.deleted").value(2))
+                .andExpect(jsonPath("$.chunks[0].deleted").value(2));
+
+        mockMvc.perform(get("/Patient/get_patient").param("id", "911"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        // By age range
+        mockMvc.perform(post("/Patient/bulk-delete/by-age").param("min", "155").param("max", "165"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+        assertTrue(patientRepo.findById(913L).isEmpty());
+        assertTrue(patientRepo.findById(914L).isEmpty());
+        // Other patients untouched
+        assertTrue(patientRepo.findById(2L).isPresent());
+
+        mockMvc.perform(post("/Patient/bulk-delete/by-age").param("min", "10").param("max", "5"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("✓ Bulk delete by ids and by age");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 20 — Lookup coalescing metrics
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(20)
+    @DisplayName("Integration: collapsed and batched lookups are published")
+    void testLookupCoalescingMetrics() throws Exception {
+
+        mockMvc.perform(get("/Patient/get_patient").param("id", "2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/metrics/patients.lookup.collapsed").param("tag", "reason:single-flight"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+        mockMvc.perform(get("/actuator/metrics/patients.lookup.collapsed").param("tag", "reason:micro-batch"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/patients.lookup.batches"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+
+        System.out.println("✓ Lookup coalescing metrics exposed");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 21 — /Patient/batch-get
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(21)
+    @DisplayName("Integration: batch-get answers many ids in request order with not-found markers")
+    void testBatchGet() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // id 1 is then served from the patient cache
+        mockMvc.perform(get("/Patient/get_patient").param("id", "1"))
+                .andExpect(status().isOk());
+
+        long statements = statistics.getPrepareStatementCount();
+        mockMvc.perform(post("/Patient/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 999999, 1, 2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].patient.name").value("Assa"))
+                .andExpect(jsonPath("$[1].id").value(999999))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].patient").doesNotExist())
+                .andExpect(jsonPath("$[2].patient.name").value("Ali"))
+                .andExpect(jsonPath("$[3].patient.name").value("Assa"))
+                .andExpect(jsonPath("$[4].patient.name").value("Md"));
+        // At most one IN query for the ids not in the cache
+        assertTrue(statistics.getPrepareStatementCount() - statements <= 1);
+
+        mockMvc.perform(get("/Patient/batch-get").param("ids", "3,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].patient.name").value("Md"))
+                .andExpect(jsonPath("$[1].patient.name").value("Ali"));
+
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= 1001; id++) {
+            tooMany.add(id);
+        }
+        mockMvc.perform(post("/Patient/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(tooMany)))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("✓ Batch get in request order");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 22 — ETag / If-None-Match / If-Match (version column)
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(22)
+    @DisplayName("Integration: reads carry the version as ETag, 304 without a query, If-Match writes are optimistic")
+    void testConditionalRequests() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // New row through the MERGE upsert starts at version 0
+        mockMvc.perform(put("/Patient/921")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Etag\",\"age\":\"50\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/Patient/get_patient").param("id", "921"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+
+        // Cached patient: 304 with no statement and no body, for both read endpoints
+        long statements = statistics.getPrepareStatementCount();
+        MvcResult notModified = mockMvc.perform(get("/Patient/get_patient").param("id", "921")
+                        .header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andReturn();
+        assertEquals("", notModified.getResponse().getContentAsString());
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "921")
+                        .header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistics.getPrepareStatementCount() - statements);
+
+        // If-Match with the current version: applied, version bumped
+        mockMvc.perform(put("/Patient/921")
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Etag\",\"age\":\"51\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        // Same stale version again: 412, nothing written
+        mockMvc.perform(put("/Patient/921")
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Lost\",\"age\":\"1\"}"))
+                .andExpect(status().isPreconditionFailed());
+        // The old ETag no longer matches
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "921")
+                        .header("If-None-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.age").value("51"));
+
+        // Blind writes still win, and bump the version: MERGE upsert, then /save
+        mockMvc.perform(put("/Patient/921")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Etag\",\"age\":\"52\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":921,\"name\":\"Etag\",\"age\":\"53\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(921));
+        mockMvc.perform(get("/Patient/get_patient").param("id", "921"))
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.age").value("53"));
+
+        // A stale version in a /post_patient body is a conflict
+        mockMvc.perform(post("/Patient/post_patient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":921,\"full-name\":\"Lost\",\"age\":\"1\",\"version\":1}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/Patient/post_patient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":921,\"full-name\":\"Etag\",\"age\":\"54\",\"version\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+        assertEquals(4L, patientRepo.findById(921L).orElseThrow().getVersion());
+
+        System.out.println("✓ Conditional GET and optimistic writes");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 23 — Smile / CBOR content negotiation
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(23)
+    @DisplayName("Integration: Accept / Content-Type select Smile or CBOR, same field names as JSON")
+    void testBinaryWireFormats() throws Exception {
+
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+        // No Accept header: still JSON
+        mockMvc.perform(get("/Patient/get_patient").param("id", "1"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+        // CBOR entity keeps the "full-name" key
+        MvcResult cborResult = mockMvc.perform(get("/Patient/get_patient").param("id", "1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        JsonNode patient = cbor.readTree(cborResult.getResponse().getContentAsByteArray());
+        assertEquals("Ali", patient.get("full-name").asText());
+        assertEquals("Ali", cbor.readValue(cborResult.getResponse().getContentAsByteArray(), Patient.class).getName());
+
+        // Smile request and response bodies
+        MvcResult saved = mockMvc.perform(post("/Patient/save")
+                        .contentType(WireFormatConfig.APPLICATION_SMILE_VALUE)
+                        .accept(WireFormatConfig.APPLICATION_SMILE_VALUE)
+                        .content(smile.writeValueAsBytes(new PatientDTO(null, "Smiley", "33"))))
+                .andExpect(status().isOk())
+                .andReturn();
+        PatientDTO savedDto = smile.readValue(saved.getResponse().getContentAsByteArray(), PatientDTO.class);
+        assertNotNull(savedDto.getId());
+        assertEquals("Smiley", patientRepo.findById(savedDto.getId()).orElseThrow().getName());
+
+        // CBOR batch-get body
+        MvcResult batch = mockMvc.perform(post("/Patient/batch-get")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(List.of(2L, savedDto.getId()))))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode items = cbor.readTree(batch.getResponse().getContentAsByteArray());
+        assertEquals("Assa", items.get(0).get("patient").get("name").asText());
+        assertEquals("Smiley", items.get(1).get("patient").get("name").asText());
+
+        // Same page, smaller payloads
+        int json = mockMvc.perform(get("/Patient/list").param("size", "50"))
+                .andReturn().getResponse().getContentAsByteArray().length;
+        int smileSize = mockMvc.perform(get("/Patient/list").param("size", "50")
+                        .accept(WireFormatConfig.APPLICATION_SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray().length;
+        int cborSize = mockMvc.perform(get("/Patient/list").param("size", "50")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray().length;
+        System.out.println("/Patient/list bytes: json=" + json + " smile=" + smileSize + " cbor=" + cborSize);
+        assertTrue(smileSize < json);
+        assertTrue(cborSize < json);
+
+        System.out.println("✓ Smile and CBOR negotiated");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 24 — Non-numeric age on the synchronous writes
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(24)
+    @DisplayName("Integration: a non-numeric age is 400 on /save and /post_patient, nothing written")
+    void testInvalidAgeRejected() throws Exception {
+
+        long before = patientRepo.count();
+
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"X\",\"age\":\"abc\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/Patient/post_patient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"full-name\":\"X\",\"age\":\"abc\"}"))
+                .andExpect(status().isBadRequest());
+        // Update of an existing patient too
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"name\":\"Ali\",\"age\":\"twenty\"}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before, patientRepo.count());
+        assertEquals("22", patientRepo.findById(1L).orElseThrow().getAge());
+
+        System.out.println("✓ Non-numeric age rejected with 400");
+    }
 }
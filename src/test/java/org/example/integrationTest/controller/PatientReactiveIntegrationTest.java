@@ -0,0 +1,159 @@
+package org.example.integrationTest.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.repo.PatientRepo;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * INTEGRATION TEST for the reactive API (/reactive/Patient).
+ * --------------------------------------------------------------
+ * Own application context with patients.reactive.enabled=true and its own
+ * H2 database, reached over JDBC (JPA side) and R2DBC (reactive side).
+ * Mono/Flux handlers run asynchronously: each call is started, then
+ * dispatched again once the publisher has completed.
+ * --------------------------------------------------------------
+ */
+
+@SpringBootTest(properties = {
+        "patients.reactive.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:reactive",
+        "patients.reactive.r2dbc.url=r2dbc:h2:mem:///reactive"
+})
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PatientReactiveIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PatientRepo patientRepo; // JPA view of the same rows
+
+    // ---------------------------------------------------------------------
+    // TEST 1 — GET /reactive/Patient/get_patient
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(1)
+    @DisplayName("Reactive: get_patient reads a seeded row over R2DBC")
+    void testGetPatient() throws Exception {
+
+        JsonNode patient = objectMapper.readTree(perform(get("/reactive/Patient/get_patient").param("id", "2")));
+
+        assertEquals("Assa", patient.get("name").asText());
+        assertEquals("30", patient.get("age").asText());
+        assertEquals("", perform(get("/reactive/Patient/get_patient").param("id", "424242")));
+
+        System.out.println("✓ Reactive read: " + patient);
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 2 — POST /reactive/Patient/save, then update through the same id
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(2)
+    @DisplayName("Reactive: save inserts with a sequence id, updates by id (unknown ids get a new one), JPA sees both")
+    void testSave() throws Exception {
+
+        JsonNode saved = objectMapper.readTree(perform(post("/reactive/Patient/save")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Reactive\",\"age\":\"33\"}")));
+        long id = saved.get("id").asLong();
+        assertTrue(id >= 1000);
+
+        // Load through JPA (and its second-level cache) before the reactive update
+        assertEquals("Reactive", patientRepo.findById(id).orElseThrow().getName());
+
+        perform(post("/reactive/Patient/save")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + id + ",\"name\":\"Reactive-2\",\"age\":\"34\"}"));
+
+        assertEquals("Reactive-2", patientRepo.findById(id).orElseThrow().getName());
+        assertEquals("34", patientRepo.findDtoById(id).orElseThrow().getAge());
+
+        // An unknown id is inserted under a new sequence id, not as is
+        JsonNode unknown = objectMapper.readTree(perform(post("/reactive/Patient/save")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":5000000,\"name\":\"Unknown\",\"age\":\"36\"}")));
+        long newId = unknown.get("id").asLong();
+        assertNotEquals(5000000L, newId);
+        assertTrue(newId > id);
+        assertTrue(patientRepo.findById(5000000L).isEmpty());
+        assertEquals("Unknown", patientRepo.findById(newId).orElseThrow().getName());
+
+        // A Hibernate insert afterwards does not collide with the reactive id
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Blocking\",\"age\":\"35\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(org.hamcrest.Matchers.not(id)));
+
+        System.out.println("✓ Reactive save id " + id);
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 3 — GET /reactive/Patient/stream and delete_patient
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(3)
+    @DisplayName("Reactive: stream lists every patient as NDJSON, delete_patient removes one")
+    void testStreamAndDelete() throws Exception {
+
+        List<String> lines = perform(get("/reactive/Patient/stream").accept(MediaType.APPLICATION_NDJSON))
+                .lines().filter(line -> !line.isBlank()).toList();
+
+        assertEquals(patientRepo.count(), lines.size());
+        assertEquals(1L, objectMapper.readTree(lines.get(0)).get("id").asLong());
+
+        perform(post("/reactive/Patient/delete_patient").param("id", "1"));
+
+        assertTrue(patientRepo.findById(1L).isEmpty());
+        assertEquals("", perform(get("/reactive/Patient/get_patient").param("id", "1")));
+
+        System.out.println("✓ Streamed " + lines.size() + " patients, deleted id 1");
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 4 — Invalid age
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(4)
+    @DisplayName("Reactive: non-numeric age answers 400")
+    void testInvalidAge() throws Exception {
+
+        MvcResult started = mockMvc.perform(post("/reactive/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Bad\",\"age\":\"old\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Starts the async request, waits for the publisher and returns the body of the second dispatch
+    private String perform(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.integrationTest.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * INTEGRATION TEST for write-behind saves.
+ * --------------------------------------------------------------
+ * Own application context with patients.write-behind.enabled=true and its own
+ * H2 database, so the shared "testdb" context is not affected.
+ * The journal file is pre-filled with one unsettled save, as if the
+ * previous run had crashed, to check the startup replay.
+ * --------------------------------------------------------------
+ */
+
+@SpringBootTest(properties = {
+        "patients.write-behind.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:writebehind"
+})
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PatientWriteBehindIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws Exception {
+        Path file = Files.createTempFile("patients-write-behind", ".ndjson");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, """
+                {"type":"SAVE","token":"left-over","patient":{"id":null,"name":"Replayed","age":"50"}}
+                """);
+        registry.add("patients.write-behind.journal", file::toString);
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 1 — Save left in the journal by a crash is written at startup
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(1)
+    @DisplayName("Write-behind: unsettled journal entry is replayed at startup")
+    void testReplay() throws Exception {
+
+        JsonNode ticket = awaitSettled("left-over");
+
+        assertEquals("SAVED", ticket.get("status").asText());
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", ticket.get("id").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replayed"));
+
+        System.out.println("✓ Replayed save written with id " + ticket.get("id"));
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 2 — POST /Patient/save answers 202 + token, then the row shows up
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(2)
+    @DisplayName("Write-behind: /save is acknowledged with a token and written later")
+    void testSaveAccepted() throws Exception {
+
+        String body = mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Queued\",\"age\":\"27\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+
+        String token = objectMapper.readTree(body).get("token").asText();
+        JsonNode ticket = awaitSettled(token);
+
+        assertEquals("SAVED", ticket.get("status").asText());
+        mockMvc.perform(get("/Patient/get_patient").param("id", ticket.get("id").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.full-name").value("Queued"));
+
+        System.out.println("✓ Token " + token + " saved as id " + ticket.get("id"));
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 3 — Unknown token
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(3)
+    @DisplayName("Write-behind: unknown token answers 404")
+    void testUnknownToken() throws Exception {
+
+        mockMvc.perform(get("/Patient/save-status/{token}", "no-such-token"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 4 — Invalid age refused before it is queued
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(4)
+    @DisplayName("Write-behind: a non-numeric age answers 400 instead of a token that later fails")
+    void testInvalidAgeRejected() throws Exception {
+
+        mockMvc.perform(post("/Patient/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"X\",\"age\":\"abc\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ---------------------------------------------------------------------
+    // TEST 5 — /post_patient with a version keeps its optimistic-locking check
+    // ---------------------------------------------------------------------
+    @Test
+    @Order(5)
+    @DisplayName("Write-behind: /post_patient with a stale version ends FAILED instead of overwriting")
+    void testStaleVersionFails() throws Exception {
+
+        String current = "{\"id\":1,\"full-name\":\"Ali\",\"age\":\"23\",\"version\":0}";
+        JsonNode first = awaitSettled(postPatient(current));
+        assertEquals("SAVED", first.get("status").asText());
+
+        // Same body again: version 0 is stale now
+        String stale = "{\"id\":1,\"full-name\":\"Stale\",\"age\":\"99\",\"version\":0}";
+        JsonNode second = awaitSettled(postPatient(stale));
+        assertEquals("FAILED", second.get("status").asText());
+
+        mockMvc.perform(get("/Patient/get_patient_dto").param("id", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Ali"))
+                .andExpect(jsonPath("$.age").value("23"));
+    }
+
+    private String postPatient(String body) throws Exception {
+        String ticket = mockMvc.perform(post("/Patient/post_patient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(ticket).get("token").asText();
+    }
+
+        private JsonNode awaitSettled(String token) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String body = mockMvc.perform(get("/Patient/save-status/{token}", token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode ticket = objectMapper.readTree(body);
+            if (!"PENDING".equals(ticket.get("status").asText())) {
+                return ticket;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Token " + token + " still pending");
+    }
+}
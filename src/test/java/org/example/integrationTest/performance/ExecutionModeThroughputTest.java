@@ -0,0 +1,108 @@
+package org.example.integrationTest.performance;
+
+import org.example.PatientsApp;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of the patient API with platform request threads vs virtual threads.
+ * Each mode boots the real application on a random port with its own H2 database
+ * and is hammered with CONCURRENCY simultaneous clients on /Patient/list (one DB query per call).
+ *
+ * Too slow for every build, run it on demand:
+ *   mvn test -Dperf=true -Dtest=ExecutionModeThroughputTest
+ */
+
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ExecutionModeThroughputTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("perf.concurrency", 1000);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("perf.requests", 20);
+
+    // =====================================================================
+    // TEST 1: Compare both modes under the same load
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Platform vs virtual threads: requests/second under high concurrency")
+    void compareModes() throws Exception {
+
+        System.out.println("TEST CASE: compareModes (" + CONCURRENCY + " clients x " + REQUESTS_PER_CLIENT + " requests)");
+
+        double platform = measure(false);
+        double virtual = measure(true);
+
+        System.out.printf("platform threads : %10.0f req/s%n", platform);
+        System.out.printf("virtual threads  : %10.0f req/s%n", virtual);
+        System.out.printf("ratio            : %10.2f%n", virtual / platform);
+
+        assertTrue(platform > 0);
+        assertTrue(virtual > 0);
+    }
+
+    private double measure(boolean virtualThreads) throws Exception {
+        // command-line arguments, so they win over application.yml
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PatientsApp.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:perf-" + (virtualThreads ? "virtual" : "platform"),
+                "--patients.db.acquire-timeout=30s")) {
+
+            assertEquals(virtualThreads, context.getEnvironment()
+                    .getProperty("spring.threads.virtual.enabled", Boolean.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/Patient/list?size=50");
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+            // warm-up: JIT, pool and caches
+            runLoad(client, request, 50, 20);
+
+            long start = System.nanoTime();
+            int ok = runLoad(client, request, CONCURRENCY, REQUESTS_PER_CLIENT);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(CONCURRENCY * REQUESTS_PER_CLIENT, ok, "every request must succeed");
+            return ok / seconds;
+        }
+    }
+
+    private int runLoad(HttpClient client, HttpRequest request, int clients, int requestsPerClient) throws Exception {
+        AtomicInteger ok = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return ok.get();
+    }
+}
@@ -1,13 +1,17 @@
 package org.example.integrationTest.repository;
 
+import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
+import jakarta.persistence.EntityManager;
 import org.example.repo.PatientRepo;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,6 +30,9 @@ public class PatientRepoIntegrationTest {
     @Autowired
     private PatientRepo patientRepo;     // Real repository connected to H2 DB
 
+    @Autowired
+    private EntityManager entityManager; // Native SQL (query plans)
+
     // -----------------------------------------------------------
     // TEST 1 → Ensure data.sql is loaded correctly
     // -----------------------------------------------------------
@@ -101,4 +108,115 @@ public class PatientRepoIntegrationTest {
 
         System.out.println("Patient with ID=2 deleted successfully");
     }
+
+    // -----------------------------------------------------------
+    // TEST 5 → Stream all rows as DTOs
+    // -----------------------------------------------------------
+    @Test
+    @Order(5)
+    @DisplayName("Stream every patient as a DTO ordered by id")
+    void testStreamAllAsDto() {
+
+        System.out.println("TEST: testStreamAllAsDto");
+
+        List<PatientDTO> dtos;
+        try (Stream<PatientDTO> rows = patientRepo.streamAllAsDto()) {
+            dtos = rows.toList();
+        }
+
+        assertEquals(3, dtos.size());
+        assertEquals(1L, dtos.get(0).getId());
+        assertEquals("Ali", dtos.get(0).getName());
+        assertEquals("22", dtos.get(0).getAge());
+
+        System.out.println("Streamed DTOs → " + dtos);
+    }
+
+    // -----------------------------------------------------------
+    // TEST 6 → Keyset page after a given id
+    // -----------------------------------------------------------
+    @Test
+    @Order(6)
+    @DisplayName("Keyset page returns the rows after the last seen id")
+    void testFindPageAfter() {
+
+        System.out.println("TEST: testFindPageAfter");
+
+        List<PatientDTO> page = patientRepo.findPageAfter(1L, Limit.of(1));
+
+        assertEquals(1, page.size());
+        assertEquals(2L, page.get(0).getId());
+        assertEquals("Assa", page.get(0).getName());
+
+        System.out.println("Page after id 1 → " + page);
+    }
+
+    // -----------------------------------------------------------
+    // TEST 7 → Single-row DTO projection
+    // -----------------------------------------------------------
+    @Test
+    @Order(7)
+    @DisplayName("findDtoById projects one row into a PatientDTO")
+    void testFindDtoById() {
+
+        System.out.println("TEST: testFindDtoById");
+
+        PatientDTO dto = patientRepo.findDtoById(3L).orElseThrow();
+
+        assertEquals(3L, dto.getId());
+        assertEquals("Md", dto.getName());
+        assertEquals("40", dto.getAge());
+        assertTrue(patientRepo.findDtoById(999L).isEmpty());
+
+        System.out.println("Projected → " + dto);
+    }
+
+    // -----------------------------------------------------------
+    // TEST 8 → Age range through the age index
+    // -----------------------------------------------------------
+    @Test
+    @Order(8)
+    @DisplayName("findAgePageAfter filters numerically and uses idx_patients_age")
+    void testFindAgePageAfter() {
+
+        System.out.println("TEST: testFindAgePageAfter");
+
+        // "9" > "22" as text; as integers 9 is below the range
+        patientRepo.save(new Patient(null, "Nine", "9"));
+
+        List<PatientDTO> firstPage = patientRepo.findAgePageAfter("20", "35", "20", 0L, Limit.of(1));
+        assertEquals(1, firstPage.size());
+        assertEquals("Ali", firstPage.get(0).getName());
+
+        List<PatientDTO> nextPage = patientRepo.findAgePageAfter("20", "35", "22", 1L, Limit.of(5));
+        assertEquals(1, nextPage.size());
+        assertEquals("Assa", nextPage.get(0).getName());
+        assertEquals("30", nextPage.get(0).getAge());
+
+        String plan = (String) entityManager.createNativeQuery(
+                "EXPLAIN SELECT id, name, age FROM patients WHERE age BETWEEN 20 AND 35 ORDER BY age, id")
+                .getSingleResult();
+        assertTrue(plan.toUpperCase().contains("IDX_PATIENTS_AGE"), plan);
+
+        System.out.println("Plan → " + plan);
+    }
+
+    // -----------------------------------------------------------
+    // TEST 9 → Set-based delete by ids
+    // -----------------------------------------------------------
+    @Test
+    @Order(9)
+    @DisplayName("deleteByIdIn removes the listed rows and counts only existing ones")
+    void testDeleteByIdIn() {
+
+        System.out.println("TEST: testDeleteByIdIn");
+
+        int deleted = patientRepo.deleteByIdIn(List.of(1L, 2L, 999L));
+
+        assertEquals(2, deleted);
+        assertEquals(1, patientRepo.count());
+        assertTrue(patientRepo.findById(3L).isPresent());
+
+        System.out.println("Deleted rows → " + deleted);
+    }
 }
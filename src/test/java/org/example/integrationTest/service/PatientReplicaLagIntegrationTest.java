@@ -0,0 +1,123 @@
+package org.example.integrationTest.service;
+
+import org.example.dto.BatchGetItem;
+import org.example.dto.PatientDTO;
+import org.example.entity.Patient;
+import org.example.service.PatientService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * INTEGRATION TEST: writes against a replica that is behind.
+ * --------------------------------------------------------------
+ * The replica pool points at its own database, which has the patients table
+ * but never receives a row: the worst possible replication lag.
+ * Saves that resolve ids and versions, and reads right after a write, must still use the primary.
+ * Assertions read the primary pool directly.
+ * --------------------------------------------------------------
+ */
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lag-primary",
+        "patients.datasource.replica.jdbc-url=jdbc:h2:mem:lag-replica;DB_CLOSE_DELAY=-1;"
+                + "INIT=CREATE TABLE IF NOT EXISTS patients (id BIGINT PRIMARY KEY, name VARCHAR(255), age INTEGER, version BIGINT)"
+})
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PatientReplicaLagIntegrationTest {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    // -----------------------------------------------------------
+    // TEST 1 — /save of an existing id updates it
+    // -----------------------------------------------------------
+    @Test
+    @Order(1)
+    @DisplayName("A save by id reads the current version on the primary: no duplicate insert")
+    void testSaveByIdUpdatesOnPrimary() {
+
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        long rows = count(primary);
+
+        PatientDTO saved = patientService.save(new PatientDTO(2L, "Assa", "31"));
+
+        assertEquals(2L, saved.getId());
+        assertEquals(rows, count(primary));
+        assertEquals(31, primary.queryForObject("SELECT age FROM patients WHERE id = 2", Integer.class));
+        assertEquals(1L, primary.queryForObject("SELECT version FROM patients WHERE id = 2", Long.class));
+    }
+
+    // -----------------------------------------------------------
+    // TEST 2 — /post_patient of a just-inserted id
+    // -----------------------------------------------------------
+    @Test
+    @Order(2)
+    @DisplayName("A blind post_Patient right after an insert updates that row, no false conflict")
+    void testPostPatientAfterInsert() {
+
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        Patient created = patientService.post_Patient(new Patient(null, "Fresh", "40"));
+        long rows = count(primary);
+
+        Patient updated = patientService.post_Patient(new Patient(created.getId(), "Fresh", "41"));
+
+        assertEquals(created.getId(), updated.getId());
+        assertEquals(rows, count(primary));
+        assertEquals(41, primary.queryForObject("SELECT age FROM patients WHERE id = ?", Integer.class, created.getId()));
+    }
+
+    // -----------------------------------------------------------
+    // TEST 3 — getPatient right after a write
+    // -----------------------------------------------------------
+    @Test
+    @Order(3)
+    @DisplayName("A cache miss right after a write loads the new row from the primary")
+    void testReadAfterWriteFromPrimary() {
+
+        patientService.getPatient(1L);
+        patientService.save(new PatientDTO(1L, "Ali-2", "23"));
+
+        // The replica has no row 1 at all: anything but the new row came from it
+        Patient patient = patientService.getPatient(1L);
+        assertNotNull(patient);
+        assertEquals("Ali-2", patient.getName());
+        assertEquals("23", patient.getAge());
+    }
+
+    // -----------------------------------------------------------
+    // TEST 4 — DTO, version and batch reads right after a write
+    // -----------------------------------------------------------
+    @Test
+    @Order(4)
+    @DisplayName("DTO, ETag version and batch-get reads right after a write use the primary")
+    void testProjectionsAfterWriteFromPrimary() {
+
+        patientService.save(new PatientDTO(3L, "Md-2", "41"));
+
+        // None of these touch the read-through cache; the replica has no row 3
+        PatientDTO dto = patientService.getPatientdto(3L);
+        assertNotNull(dto);
+        assertEquals("Md-2", dto.getName());
+        assertNotNull(patientService.getPatientVersion(3L));
+
+        List<BatchGetItem> items = patientService.batchGet(List.of(3L));
+        assertTrue(items.get(0).isFound());
+        assertEquals("Md-2", items.get(0).getPatient().getName());
+    }
+
+    private static long count(JdbcTemplate primary) {
+        return primary.queryForObject("SELECT COUNT(*) FROM patients", Long.class);
+    }
+}
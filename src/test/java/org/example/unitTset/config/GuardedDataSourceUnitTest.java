@@ -0,0 +1,88 @@
+package org.example.unitTset.config;
+
+import org.example.config.GuardedDataSource;
+import org.junit.jupiter.api.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Tests for GuardedDataSource (connection guard used in virtual-thread mode).
+ * The pooled DataSource is a Mockito mock.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class GuardedDataSourceUnitTest {
+
+    // =====================================================================
+    // TEST 1: Permits are taken on getConnection and returned on close
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Closing a guarded connection gives its permit back exactly once")
+    void testPermitReleasedOnClose() throws Exception {
+
+        System.out.println("TEST CASE: testPermitReleasedOnClose");
+
+        DataSource pool = mock(DataSource.class);
+        Connection raw = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(raw);
+
+        GuardedDataSource guarded = new GuardedDataSource(pool, 2, Duration.ofMillis(50));
+
+        Connection connection = guarded.getConnection();
+        assertEquals(1, guarded.getAvailable());
+
+        connection.close();
+        connection.close();
+        assertEquals(2, guarded.getAvailable());
+        verify(raw, times(2)).close();
+    }
+
+    // =====================================================================
+    // TEST 2: A caller over the limit waits, then fails with a transient error
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Waiting longer than acquire-timeout fails without reaching the pool")
+    void testTimeout() throws Exception {
+
+        System.out.println("TEST CASE: testTimeout");
+
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+
+        GuardedDataSource guarded = new GuardedDataSource(pool, 1, Duration.ofMillis(50));
+        Connection held = guarded.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, guarded::getConnection);
+        verify(pool, times(1)).getConnection();
+
+        held.close();
+        assertNotNull(guarded.getConnection());
+    }
+
+    // =====================================================================
+    // TEST 3: A failing pool must not leak the permit
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("Permit is returned when the pool itself throws")
+    void testPoolFailure() throws Exception {
+
+        System.out.println("TEST CASE: testPoolFailure");
+
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool down"));
+
+        GuardedDataSource guarded = new GuardedDataSource(pool, 1, Duration.ofMillis(50));
+
+        assertThrows(SQLTransientConnectionException.class, guarded::getConnection);
+        assertEquals(1, guarded.getAvailable());
+    }
+}
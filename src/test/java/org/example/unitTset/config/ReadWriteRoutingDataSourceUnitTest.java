@@ -0,0 +1,116 @@
+package org.example.unitTset.config;
+
+import org.example.config.ReadWriteRoutingDataSource;
+import org.junit.jupiter.api.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for ReadWriteRoutingDataSource.
+ * Two separate in-memory H2 databases play primary and replica; each answers
+ * with its own name, so the test can see where a query was routed.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReadWriteRoutingDataSourceUnitTest {
+
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate readWrite;
+    private static TransactionTemplate readOnly;
+
+    @BeforeAll
+    static void setUp() {
+        DataSource primary = database("routing_primary");
+        DataSource replica = database("routing_replica");
+
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(routing);
+
+        jdbc = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(txManager);
+        readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate init = new JdbcTemplate(dataSource);
+        init.execute("create table if not exists origin (name varchar(20))");
+        init.execute("delete from origin");
+        init.update("insert into origin values (?)", name);
+        return dataSource;
+    }
+
+    private static String origin() {
+        return jdbc.queryForObject("select name from origin", String.class);
+    }
+
+    // =====================================================================
+    // TEST 1: Read-only transaction goes to the replica
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Read-only transaction is served by the replica")
+    void testReadOnlyRoutedToReplica() {
+
+        System.out.println("TEST CASE: testReadOnlyRoutedToReplica");
+
+        assertEquals("routing_replica", readOnly.execute(status -> origin()));
+    }
+
+    // =====================================================================
+    // TEST 2: Read-write transaction and plain calls stay on the primary
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Read-write transaction and non-transactional calls use the primary")
+    void testWritesStayOnPrimary() {
+
+        System.out.println("TEST CASE: testWritesStayOnPrimary");
+
+        assertEquals("routing_primary", readWrite.execute(status -> origin()));
+        assertEquals("routing_primary", origin());
+    }
+
+    // =====================================================================
+    // TEST 3: A read-only call joining a write transaction keeps the primary
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("Read-only work nested in a write transaction does not switch pools")
+    void testNestedReadOnlyJoinsPrimary() {
+
+        System.out.println("TEST CASE: testNestedReadOnlyJoinsPrimary");
+
+        String nested = readWrite.execute(outer -> readOnly.execute(inner -> origin()));
+        assertEquals("routing_primary", nested);
+    }
+
+    // =====================================================================
+    // TEST 4: readFromPrimary pins read-only transactions to the primary
+    // =====================================================================
+    @Test
+    @Order(4)
+    @DisplayName("Read-only transactions inside readFromPrimary use the primary, afterwards the replica again")
+    void testReadFromPrimary() {
+
+        System.out.println("TEST CASE: testReadFromPrimary");
+
+        assertEquals("routing_primary",
+                ReadWriteRoutingDataSource.readFromPrimary(() -> readOnly.execute(status -> origin())));
+        // A nested block ending does not release the outer one
+        String afterNested = ReadWriteRoutingDataSource.readFromPrimary(() -> {
+            ReadWriteRoutingDataSource.readFromPrimary(() -> null);
+            return readOnly.execute(status -> origin());
+        });
+        assertEquals("routing_primary", afterNested);
+        assertEquals("routing_replica", readOnly.execute(status -> origin()));
+    }
+}
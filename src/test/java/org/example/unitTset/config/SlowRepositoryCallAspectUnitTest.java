@@ -0,0 +1,91 @@
+package org.example.unitTset.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.config.SlowRepositoryCallAspect;
+import org.example.repo.PatientRepo;
+import org.junit.jupiter.api.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Tests for SlowRepositoryCallAspect.
+ * The aspect is applied to a Mockito PatientRepo through an AspectJProxyFactory,
+ * no Spring context.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SlowRepositoryCallAspectUnitTest {
+
+    private PatientRepo proxy(Duration threshold, SimpleMeterRegistry registry) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(mock(PatientRepo.class));
+        factory.addAspect(new SlowRepositoryCallAspect(threshold, registry));
+        return factory.getProxy();
+    }
+
+    // =====================================================================
+    // TEST 1: Calls over the threshold are counted per method
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Calls slower than the threshold are counted per method")
+    void testSlowCallCounted() {
+
+        System.out.println("TEST CASE: testSlowCallCounted");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PatientRepo repo = proxy(Duration.ZERO, registry);
+
+        repo.findDtosByIdIn(LongStream.rangeClosed(1, 500).boxed().toList());
+        repo.findDtoById(1L);
+        repo.findDtoById(2L);
+
+        assertEquals(1.0, registry.counter("patients.db.slow.calls", "method", "findDtosByIdIn").count());
+        assertEquals(2.0, registry.counter("patients.db.slow.calls", "method", "findDtoById").count());
+    }
+
+    // =====================================================================
+    // TEST 2: Fast calls leave no trace
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Calls under the threshold are not counted")
+    void testFastCallIgnored() {
+
+        System.out.println("TEST CASE: testFastCallIgnored");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PatientRepo repo = proxy(Duration.ofMinutes(1), registry);
+
+        repo.findDtosByNameIgnoreCase("ali");
+
+        assertTrue(registry.find("patients.db.slow.calls").counters().isEmpty());
+    }
+
+    // =====================================================================
+    // TEST 3: Results and errors pass through unchanged
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("The aspect does not change results or exceptions")
+    void testTransparent() {
+
+        System.out.println("TEST CASE: testTransparent");
+
+        PatientRepo target = mock(PatientRepo.class);
+        when(target.findDtosByNameIgnoreCase("ali")).thenReturn(List.of());
+        when(target.findDtosByNameIgnoreCase("boom")).thenThrow(new IllegalStateException("boom"));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new SlowRepositoryCallAspect(Duration.ZERO, new SimpleMeterRegistry()));
+        PatientRepo repo = factory.getProxy();
+
+        assertEquals(List.of(), repo.findDtosByNameIgnoreCase("ali"));
+        assertThrows(IllegalStateException.class, () -> repo.findDtosByNameIgnoreCase("boom"));
+    }
+}
@@ -2,6 +2,8 @@ package org.example.unitTset.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.controller.PatientController;
+import org.example.dto.BulkChunkResult;
+import org.example.dto.BulkImportResult;
 import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
 import org.example.repo.PatientRepo;
@@ -16,6 +18,8 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,7 +41,7 @@ public class PatientControllerWebMvcTest {
     private PatientService patientService;   // Mocking Service
 
     @MockBean
-    private PatientRepo patientRepo;         // Mocking Repository (used in /save)
+    private PatientRepo patientRepo;         // Mocking Repository
 
     @Autowired
     private ObjectMapper objectMapper;       // Converts objects ↔ JSON
@@ -112,7 +116,7 @@ public class PatientControllerWebMvcTest {
     }
 
     // --------------------------------------------------------
-    // TEST 4 — POST /save → DTO + Mapper + Repo
+    // TEST 4 — POST /save → DTO + Service
     // --------------------------------------------------------
     @Test
     @Order(4)
@@ -128,10 +132,10 @@ public class PatientControllerWebMvcTest {
                 .age("25")
                 .build();
 
-        // Entity result saved in DB
-        Patient entity = new Patient(100L, "Sara", "25");
+        // DTO returned by the service after saving
+        PatientDTO saved = new PatientDTO(100L, "Sara", "25");
 
-        when(patientRepo.save(any(Patient.class))).thenReturn(entity);
+        when(patientService.save(any(PatientDTO.class))).thenReturn(saved);
 
         mockMvc.perform(post("/Patient/save")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -141,6 +145,37 @@ public class PatientControllerWebMvcTest {
                 .andExpect(jsonPath("$.name").value("Sara"))
                 .andExpect(jsonPath("$.age").value("25"));
 
-        verify(patientRepo, times(1)).save(any(Patient.class));
+        verify(patientService, times(1)).save(any(PatientDTO.class));
+    }
+
+    // --------------------------------------------------------
+    // TEST 5 — POST /bulk → Service bulkSave
+    // --------------------------------------------------------
+    @Test
+    @Order(5)
+    @DisplayName("POST /Patient/bulk should pass the array to the service and return the report")
+    void testBulk() throws Exception {
+
+        System.out.println("TEST CASE: POST /Patient/bulk");
+
+        List<PatientDTO> dtos = List.of(
+                PatientDTO.builder().name("Ali").age("22").build(),
+                PatientDTO.builder().name("Sara").age("25").build()
+        );
+
+        BulkImportResult report = new BulkImportResult();
+        report.add(new BulkChunkResult(0, 2, 0, null));
+
+        when(patientService.bulkSave(anyList())).thenReturn(report);
+
+        mockMvc.perform(post("/Patient/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.chunks[0].chunk").value(0));
+
+        verify(patientService, times(1)).bulkSave(anyList());
     }
 }
@@ -5,6 +5,9 @@ import org.example.entity.Patient;
 import org.example.mapper.PatientMapper;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -121,4 +124,62 @@ class PatientMapperUnitTest {
 
         System.out.println("=====================================================\n");
     }
+
+    // =========================================================
+    // TEST 5: Bulk List mapping keeps order and null elements
+    // =========================================================
+    @Test
+    void testBulkListMapping() {
+
+        System.out.println("========== TEST: testBulkListMapping ==========");
+
+        // ARRANGE
+        System.out.println("STEP 1: ARRANGE");
+        List<Patient> entities = Arrays.asList(new Patient(1L, "Ali", "22"), null, new Patient(3L, "Md", "40"));
+
+        // ACT
+        System.out.println("STEP 2: ACT");
+        List<PatientDTO> dtos = PatientMapper.toDTOs(entities);
+        List<Patient> back = PatientMapper.toEntities(dtos);
+        System.out.println("Mapped DTOs: " + dtos);
+
+        // ASSERT
+        System.out.println("STEP 3: ASSERT");
+        assertEquals(3, dtos.size());
+        assertEquals("Ali", dtos.get(0).getName());
+        assertNull(dtos.get(1));
+        assertEquals(3L, dtos.get(2).getId());
+        assertEquals(entities, back);
+        assertNull(PatientMapper.toDTOs((List<Patient>) null));
+        System.out.println("Assertion Success: order, values and nulls preserved");
+
+        System.out.println("=====================================================\n");
+    }
+
+    // =========================================================
+    // TEST 6: Bulk array mapping
+    // =========================================================
+    @Test
+    void testBulkArrayMapping() {
+
+        System.out.println("========== TEST: testBulkArrayMapping ==========");
+
+        // ARRANGE
+        System.out.println("STEP 1: ARRANGE");
+        PatientDTO[] dtos = {new PatientDTO(5L, "Mohanad", "40"), new PatientDTO(6L, "Sara", "31")};
+
+        // ACT
+        System.out.println("STEP 2: ACT");
+        Patient[] entities = PatientMapper.toEntities(dtos);
+        PatientDTO[] back = PatientMapper.toDTOs(entities);
+
+        // ASSERT
+        System.out.println("STEP 3: ASSERT");
+        assertEquals(2, entities.length);
+        assertEquals("Sara", entities[1].getName());
+        assertArrayEquals(dtos, back);
+        System.out.println("Assertion Success: arrays mapped element by element");
+
+        System.out.println("=====================================================\n");
+    }
 }
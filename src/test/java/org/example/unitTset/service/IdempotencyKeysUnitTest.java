@@ -0,0 +1,134 @@
+package org.example.unitTset.service;
+
+import org.example.dto.PatientDTO;
+import org.example.service.IdempotencyKeys;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for IdempotencyKeys (stored results of keyed writes).
+ * No Spring, no mocks: the store is plain Java.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class IdempotencyKeysUnitTest {
+
+    // =====================================================================
+    // TEST 1: A retry with the same key does not write again
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Same key and request: the write runs once, the retry gets the first result")
+    void testRetryReplaysResult() {
+
+        System.out.println("TEST CASE: testRetryReplaysResult");
+
+        IdempotencyKeys keys = new IdempotencyKeys(100, Duration.ofMinutes(1));
+        AtomicInteger writes = new AtomicInteger();
+        PatientDTO request = new PatientDTO(5000L, "Ali", "22");
+
+        String first = keys.execute("key-1", request, () -> "result-" + writes.incrementAndGet());
+        String retry = keys.execute("key-1", new PatientDTO(5000L, "Ali", "22"), () -> "result-" + writes.incrementAndGet());
+
+        assertEquals("result-1", first);
+        assertEquals("result-1", retry);
+        assertEquals(1, writes.get());
+    }
+
+    // =====================================================================
+    // TEST 2: A key cannot be reused for another request
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Same key with a different request is rejected")
+    void testKeyReuseRejected() {
+
+        System.out.println("TEST CASE: testKeyReuseRejected");
+
+        IdempotencyKeys keys = new IdempotencyKeys(100, Duration.ofMinutes(1));
+        keys.execute("key-2", new PatientDTO(5000L, "Ali", "22"), () -> "saved");
+
+        assertThrows(IllegalStateException.class,
+                () -> keys.execute("key-2", new PatientDTO(5000L, "Ali", "23"), () -> "saved again"));
+    }
+
+    // =====================================================================
+    // TEST 3: A failed write can be retried
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("A failed write stores nothing, the retry runs the write")
+    void testFailureNotStored() {
+
+        System.out.println("TEST CASE: testFailureNotStored");
+
+        IdempotencyKeys keys = new IdempotencyKeys(100, Duration.ofMinutes(1));
+        PatientDTO request = new PatientDTO(5000L, "Ali", "22");
+
+        assertThrows(RuntimeException.class, () -> keys.execute("key-3", request, () -> {
+            throw new RuntimeException("database down");
+        }));
+        assertFalse(keys.contains("key-3"));
+
+        assertEquals("saved", keys.execute("key-3", request, () -> "saved"));
+    }
+
+    // =====================================================================
+    // TEST 4: A running write only holds up its own key
+    // =====================================================================
+    @Test
+    @Order(4)
+    @DisplayName("A write in progress blocks retries of its key, not other keys")
+    void testWriteRunsOutsideLock() throws Exception {
+
+        System.out.println("TEST CASE: testWriteRunsOutsideLock");
+
+        IdempotencyKeys keys = new IdempotencyKeys(100, Duration.ofMinutes(1));
+        PatientDTO request = new PatientDTO(5000L, "Ali", "22");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger writes = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> keys.execute("slow", request, () -> {
+                writes.incrementAndGet();
+                writing.countDown();
+                await(release);
+                return "slow-result";
+            }));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            Future<String> retry = pool.submit(() -> keys.execute("slow", request, () -> "second write"));
+
+            // Other keys go through while the slow write is still running
+            assertEquals("fast", keys.execute("fast", request, () -> "fast"));
+            assertFalse(keys.contains("slow"));
+            assertFalse(retry.isDone());
+
+            release.countDown();
+            assertEquals("slow-result", first.get(5, TimeUnit.SECONDS));
+            assertEquals("slow-result", retry.get(5, TimeUnit.SECONDS));
+            assertEquals(1, writes.get());
+            assertTrue(keys.contains("slow"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
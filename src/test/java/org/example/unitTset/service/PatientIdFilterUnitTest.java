@@ -0,0 +1,134 @@
+package org.example.unitTset.service;
+
+import org.example.service.PatientIdFilter;
+import org.junit.jupiter.api.*;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Collections;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for PatientIdFilter (bloom filter of existing ids).
+ * No Spring, no mocks: the filter is plain Java.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PatientIdFilterUnitTest {
+
+    // =====================================================================
+    // TEST 1: Before the first rebuild every id must pass
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Filter lets every id through until it has been rebuilt")
+    void testNotReady() {
+
+        System.out.println("TEST CASE: testNotReady");
+
+        PatientIdFilter filter = new PatientIdFilter(1000, 0.01);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain(1L));
+        assertTrue(filter.mightContain(999_999L));
+    }
+
+    // =====================================================================
+    // TEST 2: No false negatives, few false positives
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Rebuilt filter keeps every known id and rejects most unknown ids")
+    void testRebuild() {
+
+        System.out.println("TEST CASE: testRebuild");
+
+        PatientIdFilter filter = new PatientIdFilter(10_000, 0.01);
+        filter.rebuild(LongStream.rangeClosed(1, 10_000).boxed().iterator());
+
+        // Every stored id must be reported as present
+        LongStream.rangeClosed(1, 10_000)
+                .forEach(id -> assertTrue(filter.mightContain(id), "false negative for id " + id));
+
+        // Unknown ids below the highest known one: allow a generous margin over the configured 1% rate
+        long falsePositives = LongStream.rangeClosed(-9_999, 0)
+                .filter(filter::mightContain)
+                .count();
+        System.out.println("False positives: " + falsePositives + " / 10000");
+        assertTrue(falsePositives < 300, "false positive rate far above 1%");
+    }
+
+    // =====================================================================
+    // TEST 3: add() after rebuild
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("Ids added after a rebuild are reported as present")
+    void testAdd() {
+
+        System.out.println("TEST CASE: testAdd");
+
+        PatientIdFilter filter = new PatientIdFilter(1000, 0.01);
+        filter.rebuild(Collections.emptyIterator());
+
+        filter.add(77L);
+
+        assertTrue(filter.mightContain(77L));
+    }
+
+    // =====================================================================
+    // TEST 4: Ids above the highest known one are never rejected
+    // =====================================================================
+    @Test
+    @Order(4)
+    @DisplayName("Ids above the highest rebuilt or added id are reported as possibly present")
+    void testAboveMaxId() {
+
+        System.out.println("TEST CASE: testAboveMaxId");
+
+        PatientIdFilter filter = new PatientIdFilter(10_000, 0.01);
+        filter.rebuild(LongStream.rangeClosed(1, 1_000).boxed().iterator());
+
+        // Rows another instance inserted since the rebuild
+        LongStream.rangeClosed(1_001, 2_000)
+                .forEach(id -> assertTrue(filter.mightContain(id), "false negative for id " + id));
+
+        // Below the highest known id the filter still answers
+        filter.add(5_000L);
+        long rejected = LongStream.rangeClosed(1_001, 4_999)
+                .filter(id -> !filter.mightContain(id))
+                .count();
+        assertTrue(rejected > 3_800, "unknown ids below the maximum should mostly be rejected");
+        assertTrue(filter.mightContain(5_001L));
+    }
+
+    // =====================================================================
+    // TEST 5: An id added inside a transaction survives a rebuild before the commit
+    // =====================================================================
+    @Test
+    @Order(5)
+    @DisplayName("add() inside a transaction adds the id again after the commit")
+    void testAddAfterCommit() {
+
+        System.out.println("TEST CASE: testAddAfterCommit");
+
+        PatientIdFilter filter = new PatientIdFilter(1000, 0.01);
+        filter.rebuild(Collections.emptyIterator());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filter.add(77L);
+            // A rebuild whose table scan ran before the row was committed
+            filter.rebuild(Collections.emptyIterator());
+            assertFalse(filter.mightContain(77L));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(filter.mightContain(77L));
+    }
+}
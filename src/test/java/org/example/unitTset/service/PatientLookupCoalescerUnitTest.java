@@ -0,0 +1,206 @@
+package org.example.unitTset.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.entity.Patient;
+import org.example.service.PatientLookupCoalescer;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for PatientLookupCoalescer (single flight + micro-batching).
+ * No Spring, no mocks: lookups run on a small thread pool against fake loaders.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PatientLookupCoalescerUnitTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void after() {
+        pool.shutdownNow();
+    }
+
+    // =====================================================================
+    // TEST 1: Concurrent lookups of one id share one load
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Concurrent lookups of the same id run the load once and share its result")
+    void testSingleFlight() throws Exception {
+
+        System.out.println("TEST CASE: testSingleFlight");
+
+        PatientLookupCoalescer coalescer = new PatientLookupCoalescer(Duration.ZERO, 100);
+        coalescer.bindTo(registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<Patient> first = pool.submit(() -> coalescer.singleFlight(1L, id -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return new Patient(id, "Ali", "22");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        List<Future<Patient>> joined = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            joined.add(pool.submit(() -> coalescer.singleFlight(1L, id -> {
+                loads.incrementAndGet();
+                return new Patient(id, "Other", "0");
+            })));
+        }
+        // All four are waiting on the running load before it is released
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (collapsed("single-flight") < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals("Ali", first.get(5, TimeUnit.SECONDS).getName());
+        for (Future<Patient> result : joined) {
+            assertEquals("Ali", result.get(5, TimeUnit.SECONDS).getName());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(4.0, collapsed("single-flight"));
+    }
+
+    // =====================================================================
+    // TEST 2: Lookups within the window become one bulk query
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Lookups of different ids within the batch window share one bulk query, without waiting it out")
+    void testMicroBatch() throws Exception {
+
+        System.out.println("TEST CASE: testMicroBatch");
+
+        // Far longer than the test may take: the leader has to stop waiting once all four joined
+        PatientLookupCoalescer coalescer = new PatientLookupCoalescer(Duration.ofSeconds(30), 100);
+        coalescer.bindTo(registry);
+        List<List<Long>> queries = new CopyOnWriteArrayList<>();
+        // All four lookups are running before the first one asks for its batch
+        CyclicBarrier running = new CyclicBarrier(4);
+
+        List<Future<Patient>> results = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            long patientId = id;
+            results.add(pool.submit(() -> coalescer.singleFlight(patientId, key -> {
+                await(running);
+                return coalescer.batched(key, ids -> {
+                    queries.add(List.copyOf(ids));
+                    // id 4 does not exist
+                    return Map.of(1L, new Patient(1L, "Ali", "22"),
+                            2L, new Patient(2L, "Assa", "30"),
+                            3L, new Patient(3L, "Md", "40"));
+                });
+            })));
+        }
+
+        assertEquals("Ali", results.get(0).get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Assa", results.get(1).get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Md", results.get(2).get(5, TimeUnit.SECONDS).getName());
+        assertNull(results.get(3).get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, queries.size(), "one query for all four ids: " + queries);
+        assertEquals(4, queries.get(0).size());
+        assertEquals(3.0, collapsed("micro-batch"));
+        assertEquals(1.0, registry.get("patients.lookup.batches").functionCounter().count());
+    }
+
+    // =====================================================================
+    // TEST 3: Full batches and failures
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("A full batch is queried at once; a failed query fails every lookup in it")
+    void testMaxBatchSizeAndFailure() throws Exception {
+
+        System.out.println("TEST CASE: testMaxBatchSizeAndFailure");
+
+        // One id per batch: the window is never waited for
+        PatientLookupCoalescer coalescer = new PatientLookupCoalescer(Duration.ofMinutes(1), 1);
+        Patient patient = pool.submit(() -> coalescer.batched(7L, ids -> Map.of(7L, new Patient(7L, "Sara", "25"))))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("Sara", patient.getName());
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> coalescer.batched(8L, ids -> {
+                    throw new IllegalStateException("database down");
+                }));
+        assertEquals("database down", failure.getMessage());
+    }
+
+    // =====================================================================
+    // TEST 4: Nobody else to wait for
+    // =====================================================================
+    @Test
+    @Order(4)
+    @DisplayName("A lone lookup is queried at once, not after the batch window")
+    void testLoneLookupDoesNotWait() throws Exception {
+
+        System.out.println("TEST CASE: testLoneLookupDoesNotWait");
+
+        PatientLookupCoalescer coalescer = new PatientLookupCoalescer(Duration.ofMinutes(1), 100);
+
+        Patient patient = pool.submit(() -> coalescer.singleFlight(7L,
+                        key -> coalescer.batched(key, ids -> Map.of(7L, new Patient(7L, "Sara", "25")))))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("Sara", patient.getName());
+
+        // A concurrent lookup answered without a query (a cache hit) releases the leader too
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch hitStarted = new CountDownLatch(1);
+        Future<Patient> hit = pool.submit(() -> coalescer.singleFlight(8L, key -> {
+            hitStarted.countDown();
+            await(leading);
+            return new Patient(8L, "Cached", "50");
+        }));
+        assertTrue(hitStarted.await(5, TimeUnit.SECONDS));
+        Future<Patient> missed = pool.submit(() -> coalescer.singleFlight(9L,
+                key -> coalescer.batched(key, ids -> Map.of(9L, new Patient(9L, "Karim", "33")))));
+        Thread.sleep(50);
+        leading.countDown();
+
+        assertEquals("Cached", hit.get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Karim", missed.get(5, TimeUnit.SECONDS).getName());
+    }
+
+    private double collapsed(String reason) {
+        return registry.get("patients.lookup.collapsed").tag("reason", reason).functionCounter().count();
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.unitTset.service;
+
+import org.example.dto.PatientDTO;
+import org.example.service.PatientNameIndex;
+import org.junit.jupiter.api.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for PatientNameIndex (case-folded name → ids).
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PatientNameIndexUnitTest {
+
+    private PatientNameIndex index;
+
+    @BeforeEach
+    void before() {
+        index = new PatientNameIndex();
+    }
+
+    // =====================================================================
+    // TEST 1: Lookup ignores case
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Names are found regardless of case")
+    void testFindIgnoresCase() {
+
+        System.out.println("TEST CASE: testFindIgnoresCase");
+
+        index.put(1L, "Ali");
+        index.put(2L, "ALI");
+        index.put(3L, "Sara");
+
+        assertEquals(Set.of(1L, 2L), index.findIds("aLi"));
+        assertEquals(Set.of(3L), index.findIds("sara"));
+        assertTrue(index.findIds("nobody").isEmpty());
+        assertTrue(index.findIds(null).isEmpty());
+    }
+
+    // =====================================================================
+    // TEST 2: Rename and remove keep the index consistent
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Rename moves the id, remove drops it")
+    void testRenameAndRemove() {
+
+        System.out.println("TEST CASE: testRenameAndRemove");
+
+        index.put(1L, "Ali");
+        index.put(1L, "Karim");
+
+        assertTrue(index.findIds("ali").isEmpty());
+        assertEquals(Set.of(1L), index.findIds("karim"));
+
+        index.remove(1L);
+        assertTrue(index.findIds("karim").isEmpty());
+    }
+
+    // =====================================================================
+    // TEST 3: Rebuild picks up rows written elsewhere, never overrides a live write
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("rebuild() applies the scan but keeps the value written during it")
+    void testRebuild() {
+
+        System.out.println("TEST CASE: testRebuild");
+
+        index.put(1L, "Ali");
+        index.put(2L, "Sara");
+        index.put(3L, "Gone");
+
+        // Row 2 was renamed and row 3 deleted by another instance, row 4 inserted by it;
+        // row 1 is renamed by a live save while the scan runs, after the scan read it
+        Iterator<PatientDTO> scan = List.of(
+                new PatientDTO(1L, "Ali", "22"),
+                new PatientDTO(2L, "Sarah", "30"),
+                new PatientDTO(4L, "Karim", "40")).iterator();
+        index.rebuild(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return scan.hasNext();
+            }
+
+            @Override
+            public PatientDTO next() {
+                PatientDTO row = scan.next();
+                if (row.getId() == 2L) {
+                    index.put(1L, "New name");
+                }
+                return row;
+            }
+        });
+
+        assertTrue(index.isReady());
+        assertEquals(Set.of(1L), index.findIds("new name"));
+        assertTrue(index.findIds("ali").isEmpty());
+        assertEquals(Set.of(2L), index.findIds("SARAH"));
+        assertTrue(index.findIds("sara").isEmpty());
+        assertTrue(index.findIds("gone").isEmpty());
+        assertEquals(Set.of(4L), index.findIds("karim"));
+    }
+
+    // =====================================================================
+    // TEST 4: Prefix search over whole names and single words
+    // =====================================================================
+    @Test
+    @Order(4)
+    @DisplayName("Prefix search matches the start of any word in the name")
+    void testPrefixSearch() {
+
+        System.out.println("TEST CASE: testPrefixSearch");
+
+        index.put(1L, "John Smith");
+        index.put(2L, "Smilla Jensen");
+        index.put(3L, "Sara");
+
+        assertEquals(List.of(2L, 1L), index.search("SMI", 10, false));   // "smilla" < "smith"
+        assertEquals(List.of(1L), index.search("john s", 10, false));
+        assertEquals(List.of(2L), index.search("smi", 1, false));
+        assertTrue(index.search("x", 10, false).isEmpty());
+    }
+
+    // =====================================================================
+    // TEST 5: Fuzzy search tolerates typos
+    // =====================================================================
+    @Test
+    @Order(5)
+    @DisplayName("Fuzzy search finds names within the allowed edit distance")
+    void testFuzzySearch() {
+
+        System.out.println("TEST CASE: testFuzzySearch");
+
+        index.put(1L, "John Smith");
+        index.put(2L, "Mohanad");
+        index.put(3L, "Sara");
+
+        assertEquals(List.of(1L), index.search("smyth", 10, true));      // one substitution
+        assertTrue(index.search("smtih", 10, true).isEmpty());           // swap = 2 edits, 5 chars allow 1
+        assertEquals(List.of(2L), index.search("mohamad", 10, true));    // one substitution
+        assertTrue(index.search("mohamad", 10, false).isEmpty());
+        assertTrue(index.search("xyzxyz", 10, true).isEmpty());
+
+        assertTrue(PatientNameIndex.matches("Mohanad", "mohamad", true));
+        assertFalse(PatientNameIndex.matches("Mohanad", "mohamad", false));
+    }
+}
@@ -3,13 +3,20 @@ package org.example.unitTset.service;
 import org.example.dto.PatientDTO;
 import org.example.entity.Patient;
 import org.example.repo.PatientRepo;
+import org.example.service.PatientCache;
+import org.example.service.PatientIdFilter;
+import org.example.service.PatientLookupCoalescer;
+import org.example.service.PatientNameIndex;
 import org.example.service.PatientService;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.Mockito.*;
@@ -30,6 +37,18 @@ class PatientServiceUnitTest {
     @Mock
     private PatientRepo patientRepo;   // Fake repo that Spring will not use
 
+    @Spy
+    private PatientCache patientCache = new PatientCache(100, Duration.ofMinutes(1), Duration.ofSeconds(5));   // Real cache, fresh per test
+
+    @Spy
+    private PatientIdFilter patientIdFilter = new PatientIdFilter(1000, 0.01);   // Not rebuilt → lets every id through
+
+    @Spy
+    private PatientNameIndex patientNameIndex = new PatientNameIndex();
+
+    @Spy
+    private PatientLookupCoalescer patientLookupCoalescer = new PatientLookupCoalescer(Duration.ZERO, 100);   // No batch window: one findById per lookup
+
     @InjectMocks
     private PatientService patientService;   // Class under test
 
@@ -165,11 +184,11 @@ class PatientServiceUnitTest {
     }
 
     // =====================================================================
-    // TEST 5: getPatientdto(id) - DTO mapping test
+    // TEST 5: getPatientdto(id) - DTO projection, no entity involved
     // =====================================================================
     @Test
     @Order(5)
-    @DisplayName("Test: getPatientdto(id) returns DTO mapped from entity")
+    @DisplayName("Test: getPatientdto(id) returns the DTO projected by the repository")
     void testGetPatientDto() {
 
         System.out.println("TEST CASE: testGetPatientDto");
@@ -177,15 +196,15 @@ class PatientServiceUnitTest {
         // STEP 1: ARRANGE
         Long id = 10L;
 
-        // Fake entity
-        Patient fakeEntity = Patient.builder()
+        // Fake projection row
+        PatientDTO fakeRow = PatientDTO.builder()
                 .id(id)
                 .name("Ali")
                 .age("22")
                 .build();
 
         // Mock repo behavior
-        when(patientRepo.findById(id)).thenReturn(Optional.of(fakeEntity));
+        when(patientRepo.findDtoById(id)).thenReturn(Optional.of(fakeRow));
 
         // STEP 2: ACT
         PatientDTO result = patientService.getPatientdto(id);
@@ -196,8 +215,141 @@ class PatientServiceUnitTest {
         assertEquals("Ali", result.getName());
         assertEquals("22", result.getAge());
 
-        // STEP 4: VERIFY
-        verify(patientRepo, times(1)).findById(id);
+        // STEP 4: VERIFY — no entity load
+        verify(patientRepo, times(1)).findDtoById(id);
+        verify(patientRepo, never()).findById(anyLong());
+    }
+
+    // =====================================================================
+    // TEST 6: getPatient(id) - second read is served from the cache
+    // =====================================================================
+    @Test
+    @Order(6)
+    @DisplayName("Test: getPatient(id) is cached and delete_Patient(id) invalidates it")
+    void testGetPatientCached() {
+
+        System.out.println("TEST CASE: testGetPatientCached");
+
+        // STEP 1: ARRANGE
+        Patient fake = new Patient(1L, "Ali", "22");
+        when(patientRepo.findById(1L)).thenReturn(Optional.of(fake));
+
+        // STEP 2: ACT — two reads, one DB call
+        patientService.getPatient(1L);
+        Patient cached = patientService.getPatient(1L);
+
+        // STEP 3: ASSERT
+        assertSame(fake, cached);
+        verify(patientRepo, times(1)).findById(1L);
+
+        // STEP 4: delete evicts → next read goes to the repository again
+        when(patientRepo.findById(1L)).thenReturn(Optional.empty());
+        patientService.delete_Patient(1L);
+
+        assertNull(patientService.getPatient(1L));
+        verify(patientRepo, times(2)).findById(1L);
+    }
+
+    // =====================================================================
+    // TEST 7: getPatient(id) - unknown id answered by the id filter
+    // =====================================================================
+    @Test
+    @Order(7)
+    @DisplayName("Test: getPatient(id) skips the repository for ids the filter has never seen")
+    void testGetPatient_FilteredOut() {
+
+        System.out.println("TEST CASE: testGetPatient_FilteredOut");
+
+        // STEP 1: ARRANGE — filter knows only ids 1 and 1000000 (ids above the highest always pass)
+        patientIdFilter.rebuild(List.of(1L, 1_000_000L).iterator());
+
+        // STEP 2: ACT
+        Patient result = patientService.getPatient(424242L);
+
+        // STEP 3: ASSERT
+        assertNull(result);
+        verify(patientRepo, never()).findById(anyLong());
+
+        // STEP 4: saved ids become visible to the filter
+        Patient saved = new Patient(424242L, "New", "1");
+        when(patientRepo.save(any(Patient.class))).thenReturn(saved);
+        when(patientRepo.findById(424242L)).thenReturn(Optional.of(saved));
+
+        patientService.post_Patient(new Patient(null, "New", "1"));
+        assertNotNull(patientService.getPatient(424242L));
+    }
+
+    // =====================================================================
+    // TEST 8: printName(name) - case-insensitive and side-effect free
+    // =====================================================================
+    @Test
+    @Order(8)
+    @DisplayName("Test: printName(name) matches ignoring case and does not modify the stored patient")
+    void testPrintName() {
+
+        System.out.println("TEST CASE: testPrintName");
+
+        // ACT
+        Patient first = patientService.printName("ali");
+        Patient second = patientService.printName("ALI");
+
+        // ASSERT
+        assertEquals("ALI", first.getName());
+        assertEquals("ALI", second.getName());
+        assertNotSame(first, second, "Each call must return its own copy");
+        assertEquals("NOTHING", patientService.printName("nobody").getName());
+        assertEquals("NOTHING", patientService.printName(null).getName());
+
+        // The shared entry still has its original spelling
+        first.setName("changed");
+        assertEquals("ALI", patientService.printName("Ali").getName());
+    }
+
+    // =====================================================================
+    // TEST 9: getPatientdto(id) - cached entity is reused, no query at all
+    // =====================================================================
+    @Test
+    @Order(9)
+    @DisplayName("Test: getPatientdto(id) copies a cached entity instead of querying")
+    void testGetPatientDto_FromCache() {
+
+        System.out.println("TEST CASE: testGetPatientDto_FromCache");
+
+        // STEP 1: ARRANGE — first entity read fills the cache
+        when(patientRepo.findById(2L)).thenReturn(Optional.of(new Patient(2L, "Assa", "30")));
+        patientService.getPatient(2L);
+
+        // STEP 2: ACT
+        PatientDTO result = patientService.getPatientdto(2L);
+
+        // STEP 3: ASSERT
+        assertEquals("Assa", result.getName());
+        verify(patientRepo, never()).findDtoById(anyLong());
+        verify(patientRepo, times(1)).findById(2L);
+    }
+
+    // =====================================================================
+    // TEST 10: getPatient(id) - a write during the load keeps its row out of the cache
+    // =====================================================================
+    @Test
+    @Order(10)
+    @DisplayName("Test: getPatient(id) does not cache a row loaded while the patient was written")
+    void testGetPatient_WrittenDuringLoad() {
+
+        System.out.println("TEST CASE: testGetPatient_WrittenDuringLoad");
+
+        // STEP 1: ARRANGE — the old row is read, then a write lands before it is cached
+        when(patientRepo.findById(3L)).thenAnswer(invocation -> {
+            patientCache.evict(3L);
+            return Optional.of(new Patient(3L, "Old", "40"));
+        });
+
+        // STEP 2: ACT
+        Patient loaded = patientService.getPatient(3L);
+
+        // STEP 3: ASSERT — the caller gets its row, the next reader loads again
+        assertEquals("Old", loaded.getName());
+        assertNull(patientCache.getIfPresent(3L));
     }
 
 }
@@ -0,0 +1,153 @@
+package org.example.unitTset.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PatientDTO;
+import org.example.dto.WriteTicket;
+import org.example.entity.Patient;
+import org.example.service.PatientWriteBehind;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for PatientWriteBehind (background writer behind /save with write-behind on).
+ * The database is a function that fails the way a test needs; the journal is a real file
+ * in a JUnit temp directory.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PatientWriteBehindUnitTest {
+
+    @TempDir
+    Path dir;
+
+    private PatientWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    // =====================================================================
+    // TEST 1: A connection error is retried until the database is back
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Transient row errors are retried with backoff, then SAVED")
+    void testTransientErrorRetried() throws Exception {
+
+        System.out.println("TEST CASE: testTransientErrorRetried");
+
+        AtomicInteger calls = new AtomicInteger();
+        writeBehind = start(batch -> {
+            List<RuntimeException> errors = new ArrayList<>();
+            for (Patient patient : batch) {
+                if (calls.get() < 3) {
+                    errors.add(new CannotGetJdbcConnectionException("Database down",
+                            new SQLTransientConnectionException("Connection is not available")));
+                } else {
+                    patient.setId(1000L);
+                    errors.add(null);
+                }
+            }
+            calls.incrementAndGet();
+            return errors;
+        });
+
+        WriteTicket ticket = writeBehind.submit(new PatientDTO(null, "Ali", "22"));
+
+        await(() -> writeBehind.status(ticket.getToken()).getStatus() == WriteTicket.Status.SAVED);
+        assertEquals(1000L, writeBehind.status(ticket.getToken()).getId());
+        assertEquals(4, calls.get());
+        assertEquals(0, writeBehind.getPending());
+    }
+
+    // =====================================================================
+    // TEST 2: A data error is final
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Data errors settle the save as FAILED without a retry")
+    void testDataErrorFails() throws Exception {
+
+        System.out.println("TEST CASE: testDataErrorFails");
+
+        AtomicInteger calls = new AtomicInteger();
+        writeBehind = start(batch -> {
+            calls.incrementAndGet();
+            List<RuntimeException> errors = new ArrayList<>();
+            for (Patient ignored : batch) {
+                errors.add(new DataIntegrityViolationException("Value too long for column NAME"));
+            }
+            return errors;
+        });
+
+        WriteTicket ticket = writeBehind.submit(new PatientDTO(null, "Ali", "22"));
+
+        await(() -> writeBehind.status(ticket.getToken()).getStatus() == WriteTicket.Status.FAILED);
+        assertEquals("Value too long for column NAME", writeBehind.status(ticket.getToken()).getError());
+        assertEquals(1, calls.get());
+        assertEquals(0, writeBehind.getPending());
+    }
+
+    // =====================================================================
+    // TEST 3: A batch that throws is requeued, so the backlog drains again
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("A failed batch is requeued: pending drops once it is written")
+    void testFailedBatchRequeued() throws Exception {
+
+        System.out.println("TEST CASE: testFailedBatchRequeued");
+
+        AtomicInteger calls = new AtomicInteger();
+        writeBehind = start(batch -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            List<RuntimeException> errors = new ArrayList<>();
+            for (Patient patient : batch) {
+                patient.setId(1001L);
+                errors.add(null);
+            }
+            return errors;
+        });
+
+        WriteTicket ticket = writeBehind.submit(new PatientDTO(null, "Assa", "30"));
+
+        await(() -> writeBehind.status(ticket.getToken()).getStatus() == WriteTicket.Status.SAVED);
+        assertEquals(2, calls.get());
+        assertEquals(0, writeBehind.getPending());
+    }
+
+    private PatientWriteBehind start(Function<List<Patient>, List<RuntimeException>> persist) {
+        PatientWriteBehind started = new PatientWriteBehind(true, dir.resolve("journal.ndjson"), false, 100,
+                Duration.ZERO, 100, Duration.ofHours(1), Duration.ofMillis(10), Duration.ofMillis(40),
+                new ObjectMapper());
+        started.start(persist);
+        return started;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the writer");
+            Thread.sleep(5);
+        }
+    }
+}
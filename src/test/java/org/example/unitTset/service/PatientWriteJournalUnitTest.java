@@ -0,0 +1,114 @@
+package org.example.unitTset.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PatientDTO;
+import org.example.service.PatientWriteJournal;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for PatientWriteJournal (append-only file behind write-behind saves).
+ * Works on a real file in a JUnit temp directory.
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PatientWriteJournalUnitTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // =====================================================================
+    // TEST 1: Only unsettled saves come back after a restart, in order
+    // =====================================================================
+    @Test
+    @Order(1)
+    @DisplayName("Reopening the journal replays unsettled saves only")
+    void testReplayUnsettled() throws Exception {
+
+        System.out.println("TEST CASE: testReplayUnsettled");
+
+        Path file = dir.resolve("journal.ndjson");
+
+        // First run: three saves, one written, one failed, then a "crash"
+        PatientWriteJournal journal = new PatientWriteJournal(file, true, mapper);
+        assertTrue(journal.open().isEmpty());
+        journal.save("a", new PatientDTO(null, "Ali", "22"), null);
+        journal.save("b", new PatientDTO(2L, "Assa", "30"), 4L);
+        journal.save("c", new PatientDTO(null, "Md", "40"), null);
+        journal.done("a", 1000L);
+        journal.failed("c", "boom");
+        journal.close();
+
+        // Second run
+        PatientWriteJournal reopened = new PatientWriteJournal(file, true, mapper);
+        List<PatientWriteJournal.Entry> replay = reopened.open();
+
+        assertEquals(1, replay.size());
+        assertEquals("b", replay.get(0).token());
+        assertEquals("Assa", replay.get(0).patient().getName());
+        assertEquals(4L, replay.get(0).version());
+        assertEquals(1, reopened.getPending());
+
+        // The file was compacted down to the backlog
+        assertEquals(1, Files.readAllLines(file).size());
+        reopened.close();
+    }
+
+    // =====================================================================
+    // TEST 2: A torn last line (crash mid-append) is skipped
+    // =====================================================================
+    @Test
+    @Order(2)
+    @DisplayName("Torn last line is ignored on replay")
+    void testTornLine() throws Exception {
+
+        System.out.println("TEST CASE: testTornLine");
+
+        Path file = dir.resolve("torn.ndjson");
+        PatientWriteJournal journal = new PatientWriteJournal(file, false, mapper);
+        journal.open();
+        journal.save("x", new PatientDTO(null, "Karim", "33"), null);
+        journal.close();
+        Files.writeString(file, "{\"type\":\"SAVE\",\"token\":\"y\",\"pat", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<PatientWriteJournal.Entry> replay = new PatientWriteJournal(file, false, mapper).open();
+
+        assertEquals(1, replay.size());
+        assertEquals("x", replay.get(0).token());
+    }
+
+    // =====================================================================
+    // TEST 3: File is emptied once the backlog is drained
+    // =====================================================================
+    @Test
+    @Order(3)
+    @DisplayName("Journal file is truncated when nothing is pending")
+    void testTruncateWhenDrained() throws Exception {
+
+        System.out.println("TEST CASE: testTruncateWhenDrained");
+
+        Path file = dir.resolve("drain.ndjson");
+        PatientWriteJournal journal = new PatientWriteJournal(file, false, mapper);
+        journal.open();
+
+        journal.save("1", new PatientDTO(null, "Ali", "22"), null);
+        journal.save("2", new PatientDTO(null, "Assa", "30"), null);
+        journal.done("1", 1L);
+        assertTrue(Files.size(file) > 0);
+
+        journal.done("2", 2L);
+        assertEquals(0, journal.getPending());
+        assertEquals(0, Files.size(file));
+        journal.close();
+    }
+}